@@ -4,6 +4,8 @@ import android.os.Bundle;
 
 import com.badlogic.gdx.backends.android.AndroidApplication;
 import com.badlogic.gdx.backends.android.AndroidApplicationConfiguration;
+import lando.systems.prototype.LaunchOptions;
+import lando.systems.prototype.ModelConfig;
 import lando.systems.prototype.Prototype;
 
 public class AndroidLauncher extends AndroidApplication {
@@ -11,6 +13,8 @@ public class AndroidLauncher extends AndroidApplication {
 	protected void onCreate (Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 		AndroidApplicationConfiguration config = new AndroidApplicationConfiguration();
-		initialize(new Prototype(), config);
+		LaunchOptions options = new LaunchOptions();
+		options.snapshotPath = "snapshot.bin";
+		initialize(new Prototype(new ModelConfig(), options), config);
 	}
 }
@@ -0,0 +1,62 @@
+package lando.systems.prototype;
+
+import java.util.Random;
+
+/**
+ * Deterministic board fixtures shared by the benchmarks
+ */
+public class BenchmarkBoards {
+
+    private static final BlockType[] TYPES = BlockType.values();
+
+    /**
+     * A stable board together with the landing that produces the longest
+     * cascade found by a seeded random search.
+     */
+    public static class Cascade {
+        public final BitBoard  board = new BitBoard();
+        public       int       row;
+        public       BlockType type;
+        public       int       chainDepth;
+    }
+
+    public static Cascade findWorstCascade(long seed, int numBoards) {
+        final Random   random    = new Random(seed);
+        final BitBoard candidate = new BitBoard();
+        final BitBoard scratch   = new BitBoard();
+        final Cascade  worst     = new Cascade();
+
+        for (int i = 0; i < numBoards; ++i) {
+            fillRandom(candidate, random);
+            for (int row = 0; row < BlockField.FIELD_HEIGHT; ++row) {
+                for (int t = 0; t < BitBoard.NUM_TYPES; ++t) {
+                    scratch.set(candidate);
+                    if (scratch.land(row, TYPES[t]) >= 0
+                     && scratch.getChainDepth() > worst.chainDepth) {
+                        worst.board.set(candidate);
+                        worst.row        = row;
+                        worst.type       = TYPES[t];
+                        worst.chainDepth = scratch.getChainDepth();
+                    }
+                }
+            }
+        }
+        return worst;
+    }
+
+    /**
+     * Fill every row to a random depth with random types, leaving at least one
+     * empty cell per row, then resolve so the board holds no runs.
+     */
+    public static void fillRandom(BitBoard board, Random random) {
+        board.clear();
+        for (int row = 0; row < BlockField.FIELD_HEIGHT; ++row) {
+            final int filled = random.nextInt(BlockField.FIELD_WIDTH);
+            for (int col = BlockField.FIELD_WIDTH - filled; col < BlockField.FIELD_WIDTH; ++col) {
+                board.set(row, col, TYPES[random.nextInt(BitBoard.NUM_TYPES)]);
+            }
+        }
+        board.resolve();
+    }
+
+}
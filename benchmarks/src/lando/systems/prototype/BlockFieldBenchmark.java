@@ -0,0 +1,91 @@
+package lando.systems.prototype;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cascade benchmarks restore the board before every landing, so subtract
+ * resetBoard from their scores to get the cost of the cascade itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockFieldBenchmark {
+
+    private static final long SEED       = 0x5eedL;
+    private static final int  NUM_BOARDS = 5000;
+
+    BenchmarkBoards.Cascade cascade;
+    BlockField              field;
+    BlockField              restingField;
+    BitBoard                bitBoard;
+    Block                   landingCell;
+    float                   hoveringX;
+
+    @Setup
+    public void setup() {
+        cascade = BenchmarkBoards.findWorstCascade(SEED, NUM_BOARDS);
+
+        field = new BlockField();
+        cascade.board.project(field);
+        landingCell = field.getBlocks()[cascade.row][cascade.board.getLandingCol(cascade.row)];
+
+        restingField = new BlockField();
+        cascade.board.project(restingField);
+
+        // A flung block just short of its landing cell, so checkForLanding never lands it
+        hoveringX = landingCell.position.x - 1;
+
+        bitBoard = new BitBoard();
+    }
+
+    @Benchmark
+    public void resetBoard() {
+        cascade.board.project(field);
+    }
+
+    @Benchmark
+    public int checkForMatchesWorstCascade() {
+        cascade.board.project(field);
+        landingCell.type = cascade.type;
+        field.checkForMatches(landingCell);
+        return field.getCascadeStats().getChainDepth();
+    }
+
+    @Benchmark
+    public int bitBoardWorstCascade() {
+        bitBoard.set(cascade.board);
+        bitBoard.land(cascade.row, cascade.type);
+        return bitBoard.getChainDepth();
+    }
+
+    @Benchmark
+    public boolean checkForLanding() {
+        return restingField.checkForLanding(cascade.type, cascade.row, hoveringX);
+    }
+
+    @Benchmark
+    public int isRowFull() {
+        int numFull = 0;
+        for (int row = 0; row < BlockField.FIELD_HEIGHT; ++row) {
+            if (restingField.isRowFull(row)) {
+                ++numFull;
+            }
+        }
+        return numFull;
+    }
+
+}
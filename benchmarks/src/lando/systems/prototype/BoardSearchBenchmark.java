@@ -0,0 +1,88 @@
+package lando.systems.prototype;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bot search cost on random half full boards.  The positions counter is the
+ * number of boards searched per second, which is what bounds how deep the
+ * bot can look within a frame.  The cached runs share one CascadeCache
+ * across every search, as the Bot does between plans.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardSearchBenchmark {
+
+    private static final long SEED       = 0x5eedL;
+    private static final int  NUM_BOARDS = 64;
+    private static final int  NUM_KNOWN  = 6;
+
+    @Param({"2", "3", "4"})
+    int depth;
+
+    @Param({"false", "true"})
+    boolean cached;
+
+    BitBoard[]  boards;
+    byte[]      types;
+    BoardSearch search;
+    int         next;
+
+    @State(Scope.Thread)
+    @AuxCounters
+    public static class Counters {
+        public long positions;
+    }
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(SEED);
+        boards = new BitBoard[NUM_BOARDS];
+        for (int i = 0; i < NUM_BOARDS; ++i) {
+            boards[i] = new BitBoard();
+            BenchmarkBoards.fillRandom(boards[i], random);
+        }
+        types = new byte[NUM_KNOWN];
+        for (int i = 0; i < NUM_KNOWN; ++i) {
+            types[i] = (byte) random.nextInt(BitBoard.NUM_TYPES);
+        }
+        search = new BoardSearch(depth, cached ? new CascadeCache() : null);
+    }
+
+    @Benchmark
+    public int search(Counters counters) {
+        final BitBoard board = boards[next];
+        next = (next + 1) % NUM_BOARDS;
+        final int row = search.search(board, types, NUM_KNOWN, BlockField.FIELD_HEIGHT - 1, depth);
+        counters.positions += search.getNodes();
+        return row;
+    }
+
+    @Benchmark
+    public int searchChanceOnly(Counters counters) {
+        // Only the block being placed is known, every later ply averages over all types
+        final BitBoard board = boards[next];
+        next = (next + 1) % NUM_BOARDS;
+        final int row = search.search(board, types, 1, BlockField.FIELD_HEIGHT - 1, depth);
+        counters.positions += search.getNodes();
+        return row;
+    }
+
+}
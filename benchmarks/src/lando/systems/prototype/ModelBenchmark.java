@@ -0,0 +1,138 @@
+package lando.systems.prototype;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-play blocks wait above the field, with one target block lower down at
+ * row height for flings to hit.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+
+    private static final int TARGET_ROW = 5;
+
+    @State(Scope.Thread)
+    public static class InPlay {
+
+        @Param({"10", "100", "1000", "10000"})
+        public int numBlocksInPlay;
+
+        Model model;
+        float targetX;
+        float targetY;
+        float touchX;
+        float touchY;
+        float missY;
+        double targetSpawnTime;
+
+        // Rebuilt every iteration so fling and update leave no lasting changes
+        @Setup(Level.Iteration)
+        public void setup() {
+            model = new Model();
+            model.dropAccum = 0;
+
+            final float waitY = BlockField.FIELD_START_Y + BlockField.FIELD_HEIGHT * Block.SIZE + 1;
+            for (int i = 0; i < numBlocksInPlay - 1; ++i) {
+                final BlockType type = BlockType.fromInt(i % BitBoard.NUM_TYPES);
+                // Every fourth block is flinging, but still well short of the field
+                if (i % 4 == 3) {
+                    final int j = model.flingingBlocks.add(type, Layout.BLOCK_QUEUE_POSITION_X, waitY + i % Block.SIZE);
+                    model.flingingBlocks.velocityX[j] = 512;
+                } else {
+                    model.droppingBlocks.add(type, 0, spawnTimeAt(waitY + i % Block.SIZE));
+                }
+            }
+
+            targetX = Layout.BLOCK_QUEUE_POSITION_X;
+            targetY = BlockField.FIELD_START_Y + TARGET_ROW * Block.SIZE;
+            targetSpawnTime = spawnTimeAt(targetY);
+            model.droppingBlocks.add(BlockType.RED, 0, targetSpawnTime);
+
+            touchX = targetX + Block.SIZE / 2;
+            touchY = targetY + Block.SIZE / 2;
+            missY  = BlockField.FIELD_START_Y + Block.SIZE / 2;
+        }
+
+        // Spawn time that puts a dropping block at height y when the sim time is zero
+        double spawnTimeAt(float y) {
+            return (y - model.droppingBlocks.spawnY) / model.droppingBlocks.gravity;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Empty {
+        Model model;
+
+        @Setup
+        public void setup() {
+            model = new Model();
+        }
+    }
+
+    /**
+     * A zero timestep keeps the in-play population constant, so every
+     * invocation does the same amount of work.
+     */
+    @Benchmark
+    public void updateBlocks(InPlay s) {
+        s.model.updateBlocks(0);
+    }
+
+    /**
+     * Evaluate every dropping block's position, as drawing them does
+     */
+    @Benchmark
+    public float dropPositions(InPlay s) {
+        final DroppingBlocks dropping = s.model.droppingBlocks;
+        final double time = s.model.getTime();
+        float sum = 0;
+        for (int i = 0; i < dropping.size(); ++i) {
+            sum += dropping.getX(i, time) + dropping.getY(i, time);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int dropBlock(Empty s) {
+        s.model.dropBlock(0);
+        s.model.droppingBlocks.clear();
+        return s.model.droppingBlocks.size();
+    }
+
+    /**
+     * Fling the target, then put it back among the dropping blocks
+     */
+    @Benchmark
+    public int flingBlock(InPlay s) {
+        s.model.flingBlock(s.touchX, s.touchY);
+        final InPlayBlocks flinging = s.model.flingingBlocks;
+        final int flung = flinging.size() - 1;
+        final int row   = flinging.getRow(flung);
+        flinging.remove(flung);
+        s.model.droppingBlocks.add(BlockType.RED, 0, s.targetSpawnTime);
+        return row;
+    }
+
+    @Benchmark
+    public void flingBlockMiss(InPlay s) {
+        s.model.flingBlock(s.touchX, s.missY);
+    }
+
+}
@@ -0,0 +1,100 @@
+package lando.systems.prototype;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Loads the game's art through an AssetManager a slice at a time, so the
+ * render thread can keep drawing a loading screen while it happens.
+ *
+ * Sprites are packed into ATLAS at build time by the desktop project's
+ * packTextures task, from the images in art/sprites.  Until the atlas has
+ * been packed, the regions are cut from the original spritesheet instead.
+ */
+public class Assets implements Disposable {
+
+    public static final String ATLAS       = "atlas/prototype.atlas";
+    public static final String SPRITESHEET = "spritesheet.png";
+
+    public static final String BLOCK       = "block";
+    public static final String EMPTY       = "empty";
+    public static final String DROP_REGION = "drop-region";
+
+    // Longest the loader may block the render thread for in one update
+    private static final int LOAD_SLICE_MILLIS = 10;
+
+    final AssetManager manager;
+    final boolean      packed;
+
+    TextureRegion block;
+    TextureRegion empty;
+    TextureRegion dropRegion;
+
+    public Assets() {
+        manager = new AssetManager();
+        packed  = Gdx.files.internal(ATLAS).exists();
+        if (packed) {
+            manager.load(ATLAS, TextureAtlas.class);
+        } else {
+            manager.load(SPRITESHEET, Texture.class);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    /**
+     * Load for at most a few milliseconds, returns true once everything is loaded
+     */
+    public boolean update() {
+        if (block != null) {
+            return true;
+        }
+        if (!manager.update(LOAD_SLICE_MILLIS)) {
+            return false;
+        }
+        findRegions();
+        return true;
+    }
+
+    public float getProgress() {
+        return manager.getProgress();
+    }
+
+    public boolean isPacked() { return packed; }
+
+    public TextureRegion getBlock()      { return block; }
+    public TextureRegion getEmpty()      { return empty; }
+    public TextureRegion getDropRegion() { return dropRegion; }
+
+    @Override
+    public void dispose() {
+        manager.dispose();
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private void findRegions() {
+        if (packed) {
+            final TextureAtlas atlas = manager.get(ATLAS, TextureAtlas.class);
+            block      = atlas.findRegion(BLOCK);
+            empty      = atlas.findRegion(EMPTY);
+            dropRegion = atlas.findRegion(DROP_REGION);
+        } else {
+            final TextureRegion[][] regions = TextureRegion.split(manager.get(SPRITESHEET, Texture.class),
+                                                                  Block.SIZE,
+                                                                  Block.SIZE);
+            block      = regions[0][0];
+            empty      = regions[0][1];
+            dropRegion = regions[0][2];
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package lando.systems.prototype;
+
+/**
+ * Buckets the blocks of a store into bands by a fixed key, so a query only
+ * looks at the bands it overlaps.  Bands are numbered by floor(key / bandSize)
+ * and share a ring of numBands slots, so keys that only span a sliding window
+ * (like the spawn times of blocks that are still on screen) never need to be
+ * re-bucketed.  Each slot is an intrusive doubly linked list of store indices,
+ * kept in sync by the store as blocks are added, removed and moved.
+ */
+public class BandIndex {
+
+    public static final int NONE = -1;
+
+    private final double bandSize;
+    private final int[]  heads;
+
+    int[] slot;
+    int[] next;
+    int[] prev;
+
+    public BandIndex(double bandSize, int numBands, int capacity) {
+        this.bandSize = bandSize;
+        this.heads    = new int[numBands];
+        this.slot     = new int[capacity];
+        this.next     = new int[capacity];
+        this.prev     = new int[capacity];
+        clear();
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    public int getNumBands() {
+        return heads.length;
+    }
+
+    public double getBandSize() {
+        return bandSize;
+    }
+
+    /**
+     * Returns the band containing key
+     */
+    public int getBand(double key) {
+        return (int) Math.floor(key / bandSize);
+    }
+
+    /**
+     * Returns the first index in a band, or NONE.  Bands that are a multiple
+     * of numBands apart share a slot, so callers check the key of each entry.
+     */
+    public int first(int band) {
+        return heads[getSlot(band)];
+    }
+
+    /**
+     * Returns the index after i in its band, or NONE
+     */
+    public int next(int i) {
+        return next[i];
+    }
+
+    // -------------------------------------------------------------------------
+    // Package interface, driven by the store
+    // -------------------------------------------------------------------------
+
+    void insert(int i, double key) {
+        link(i, getSlot(getBand(key)));
+    }
+
+    /**
+     * Link i into its band right after index 'after', or first if after is NONE
+     */
+    void insertAfter(int i, int after, double key) {
+        if (after == NONE) {
+            insert(i, key);
+            return;
+        }
+        slot[i] = slot[after];
+        prev[i] = after;
+        next[i] = next[after];
+        if (next[after] != NONE) prev[next[after]] = i;
+        next[after] = i;
+    }
+
+    void remove(int i) {
+        unlink(i);
+    }
+
+    /**
+     * The entry at index 'from' now lives at index 'to'
+     */
+    void move(int from, int to) {
+        slot[to] = slot[from];
+        next[to] = next[from];
+        prev[to] = prev[from];
+        if (prev[to] != NONE) next[prev[to]] = to;
+        else                  heads[slot[to]] = to;
+        if (next[to] != NONE) prev[next[to]] = to;
+    }
+
+    void clear() {
+        for (int s = 0; s < heads.length; ++s) {
+            heads[s] = NONE;
+        }
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity <= slot.length) return;
+        final int[] newSlot = new int[capacity];
+        final int[] newNext = new int[capacity];
+        final int[] newPrev = new int[capacity];
+        System.arraycopy(slot, 0, newSlot, 0, slot.length);
+        System.arraycopy(next, 0, newNext, 0, next.length);
+        System.arraycopy(prev, 0, newPrev, 0, prev.length);
+        slot = newSlot;
+        next = newNext;
+        prev = newPrev;
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private int getSlot(int band) {
+        final int s = band % heads.length;
+        return (s < 0) ? s + heads.length : s;
+    }
+
+    private void link(int i, int s) {
+        slot[i] = s;
+        prev[i] = NONE;
+        next[i] = heads[s];
+        if (heads[s] != NONE) prev[heads[s]] = i;
+        heads[s] = i;
+    }
+
+    private void unlink(int i) {
+        if (prev[i] != NONE) next[prev[i]] = next[i];
+        else                 heads[slot[i]] = next[i];
+        if (next[i] != NONE) prev[next[i]] = prev[i];
+    }
+
+}
@@ -0,0 +1,350 @@
+package lando.systems.prototype;
+
+/**
+ * Packed alternative to the Block[][] grid in BlockField: one bitmask per
+ * BlockType, with match detection and compaction done using shifts and ANDs.
+ *
+ * Cell (row, col) lives at bit index row * FIELD_WIDTH + col. The field has
+ * 72 cells, which is more than a single long holds, so each mask is stored as
+ * a 128 bit pair: bits 0-63 in lo[], bits 64-71 in hi[].
+ *
+ * Only runs of NUM_MATCH_BLOCKS are detected across the whole board, which
+ * matches BlockField's per-block walks because a resting board never holds
+ * an unresolved run.
+ *
+ * Each board keeps the same Zobrist hash a BlockField with the same types
+ * would have.  Placing a block updates it with one xor, it is only
+ * recomputed after a cascade clears cells.
+ */
+public class BitBoard {
+
+    public static final int NUM_TYPES = BlockType.NUM_BLOCKS.ordinal();
+    public static final int NUM_CELLS = BlockField.FIELD_WIDTH * BlockField.FIELD_HEIGHT;
+
+    private static final int         WIDTH   = BlockField.FIELD_WIDTH;
+    private static final int         HEIGHT  = BlockField.FIELD_HEIGHT;
+    private static final int         RUN     = BlockField.NUM_MATCH_BLOCKS;
+    private static final long        HI_MASK = (1L << (NUM_CELLS - 64)) - 1;
+    private static final BlockType[] TYPES   = BlockType.values();
+
+    // Cells where a horizontal run of RUN blocks can start without wrapping rows
+    private static final long RUN_START_LO;
+    private static final long RUN_START_HI;
+    // Cells that are not in the last (right-most) column
+    private static final long NOT_LAST_COL_LO;
+    private static final long NOT_LAST_COL_HI;
+    static {
+        long runLo = 0, runHi = 0, notLastLo = 0, notLastHi = 0;
+        for (int row = 0; row < HEIGHT; ++row) {
+            for (int col = 0; col < WIDTH; ++col) {
+                final int bit = row * WIDTH + col;
+                if (col <= WIDTH - RUN) {
+                    if (bit < 64) runLo |= 1L << bit;
+                    else          runHi |= 1L << (bit - 64);
+                }
+                if (col < WIDTH - 1) {
+                    if (bit < 64) notLastLo |= 1L << bit;
+                    else          notLastHi |= 1L << (bit - 64);
+                }
+            }
+        }
+        RUN_START_LO    = runLo;
+        RUN_START_HI    = runHi;
+        NOT_LAST_COL_LO = notLastLo;
+        NOT_LAST_COL_HI = notLastHi;
+    }
+
+    final long[] lo;
+    final long[] hi;
+
+    long hash;
+
+    // Results of the most recent resolve()
+    int chainDepth;
+    int cellsCleared;
+
+    public BitBoard() {
+        lo = new long[NUM_TYPES];
+        hi = new long[NUM_TYPES];
+    }
+
+    public BitBoard(BitBoard other) {
+        this();
+        set(other);
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    public void set(BitBoard other) {
+        System.arraycopy(other.lo, 0, lo, 0, NUM_TYPES);
+        System.arraycopy(other.hi, 0, hi, 0, NUM_TYPES);
+        hash         = other.hash;
+        chainDepth   = other.chainDepth;
+        cellsCleared = other.cellsCleared;
+    }
+
+    public void clear() {
+        for (int t = 0; t < NUM_TYPES; ++t) {
+            lo[t] = 0;
+            hi[t] = 0;
+        }
+        hash         = 0;
+        chainDepth   = 0;
+        cellsCleared = 0;
+    }
+
+    public BlockType get(int row, int col) {
+        final int bit = row * WIDTH + col;
+        for (int t = 0; t < NUM_TYPES; ++t) {
+            if (bit < 64 ? (lo[t] & (1L << bit)) != 0
+                         : (hi[t] & (1L << (bit - 64))) != 0) {
+                return TYPES[t];
+            }
+        }
+        return BlockType.EMPTY;
+    }
+
+    public void set(int row, int col, BlockType type) {
+        final int bit = row * WIDTH + col;
+        final long loBit = (bit < 64) ? 1L << bit : 0;
+        final long hiBit = (bit < 64) ? 0 : 1L << (bit - 64);
+        for (int t = 0; t < NUM_TYPES; ++t) {
+            if ((lo[t] & loBit) != 0 || (hi[t] & hiBit) != 0) {
+                hash ^= Zobrist.cell(bit, t);
+            }
+            lo[t] &= ~loBit;
+            hi[t] &= ~hiBit;
+        }
+        if (type.ordinal() < NUM_TYPES) {
+            lo[type.ordinal()] |= loBit;
+            hi[type.ordinal()] |= hiBit;
+            hash ^= Zobrist.cell(bit, type.ordinal());
+        }
+    }
+
+    /**
+     * Returns the column the next landing block would occupy in the given row,
+     * or -1 if the row is full.  Rows are always packed to the right.
+     */
+    public int getLandingCol(int row) {
+        if (row < 0 || row >= HEIGHT) {
+            return -1;
+        }
+        return WIDTH - 1 - Integer.bitCount(getRowBits(row));
+    }
+
+    public boolean isRowFull(int row) {
+        return getLandingCol(row) < 0;
+    }
+
+    public int getRowCount(int row) {
+        return Integer.bitCount(getRowBits(row));
+    }
+
+    /**
+     * Returns the number of horizontally or vertically adjacent pairs of
+     * same-typed cells, a rough measure of how close the board is to matches
+     */
+    public int countAdjacentPairs() {
+        int pairs = 0;
+        for (int t = 0; t < NUM_TYPES; ++t) {
+            final long mLo = lo[t];
+            final long mHi = hi[t];
+            if (mLo == 0 && mHi == 0) continue;
+            pairs += Long.bitCount(mLo & shrLo(mLo, mHi, 1) & NOT_LAST_COL_LO)
+                   + Long.bitCount(mHi & (mHi >>> 1)       & NOT_LAST_COL_HI)
+                   + Long.bitCount(mLo & shrLo(mLo, mHi, WIDTH))
+                   + Long.bitCount(mHi & (mHi >>> WIDTH));
+        }
+        return pairs;
+    }
+
+    /**
+     * Drop a block of the given type into a row and resolve any cascade.
+     * Returns the landing column, or -1 if the row was full.
+     */
+    public int land(int row, BlockType type) {
+        final int col = getLandingCol(row);
+        if (col < 0) {
+            chainDepth   = 0;
+            cellsCleared = 0;
+            return -1;
+        }
+        set(row, col, type);
+        resolve();
+        return col;
+    }
+
+    /**
+     * Clear runs and compact rows until the board is stable.
+     * Returns the number of cascade steps that cleared at least one run.
+     */
+    public int resolve() {
+        chainDepth   = 0;
+        cellsCleared = 0;
+        while (clearMatches()) {
+            ++chainDepth;
+            compact();
+        }
+        if (chainDepth > 0) {
+            rehash();
+        }
+        return chainDepth;
+    }
+
+    public int  getChainDepth()   { return chainDepth; }
+    public int  getCellsCleared() { return cellsCleared; }
+    public long getHash()         { return hash; }
+
+    /**
+     * Load the current types of a BlockField into this board.
+     */
+    public void load(BlockField field) {
+        clear();
+        final Block[][] blocks = field.getBlocks();
+        for (int row = 0; row < HEIGHT; ++row) {
+            for (int col = 0; col < WIDTH; ++col) {
+                final int t = blocks[row][col].type.ordinal();
+                if (t >= NUM_TYPES) continue;
+                final int bit = row * WIDTH + col;
+                if (bit < 64) lo[t] |= 1L << bit;
+                else          hi[t] |= 1L << (bit - 64);
+            }
+        }
+        hash = field.getHash();
+    }
+
+    /**
+     * Write this board back into the Block[][] projection of a BlockField.
+     */
+    public void project(BlockField field) {
+        final Block[][] blocks = field.getBlocks();
+        for (int row = 0; row < HEIGHT; ++row) {
+            for (int col = 0; col < WIDTH; ++col) {
+                blocks[row][col].type    = get(row, col);
+                blocks[row][col].matched = false;
+            }
+        }
+        field.markDirty();
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private int getRowBits(int row) {
+        long occLo = 0, occHi = 0;
+        for (int t = 0; t < NUM_TYPES; ++t) {
+            occLo |= lo[t];
+            occHi |= hi[t];
+        }
+        final int shift = row * WIDTH;
+        final long bits;
+        if (shift + WIDTH <= 64) {
+            bits = occLo >>> shift;
+        } else if (shift >= 64) {
+            bits = occHi >>> (shift - 64);
+        } else {
+            bits = (occLo >>> shift) | (occHi << (64 - shift));
+        }
+        return (int) (bits & ((1L << WIDTH) - 1));
+    }
+
+    private void rehash() {
+        hash = 0;
+        for (int t = 0; t < NUM_TYPES; ++t) {
+            long bits = lo[t];
+            while (bits != 0) {
+                hash ^= Zobrist.cell(Long.numberOfTrailingZeros(bits), t);
+                bits &= bits - 1;
+            }
+            bits = hi[t];
+            while (bits != 0) {
+                hash ^= Zobrist.cell(64 + Long.numberOfTrailingZeros(bits), t);
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    /**
+     * Find every horizontal or vertical run of at least RUN same-typed cells
+     * and clear it.  Returns true if anything was cleared.
+     */
+    private boolean clearMatches() {
+        boolean cleared = false;
+        for (int t = 0; t < NUM_TYPES; ++t) {
+            final long mLo = lo[t];
+            final long mHi = hi[t];
+            if (mLo == 0 && mHi == 0) continue;
+
+            // Horizontal run starts: m & (m >> 1) & ... & (m >> RUN-1), limited to valid columns
+            long hLo = mLo & RUN_START_LO;
+            long hHi = mHi & RUN_START_HI;
+            // Vertical run starts: m & (m >> WIDTH) & ... & (m >> WIDTH * (RUN-1))
+            long vLo = mLo;
+            long vHi = mHi;
+            for (int i = 1; i < RUN; ++i) {
+                hLo &= shrLo(mLo, mHi, i);
+                hHi &= mHi >>> i;
+                vLo &= shrLo(mLo, mHi, i * WIDTH);
+                vHi &= mHi >>> (i * WIDTH);
+            }
+            if ((hLo | hHi | vLo | vHi) == 0) continue;
+
+            // Expand run starts to cover every cell in the run
+            long clearLo = hLo | vLo;
+            long clearHi = hHi | vHi;
+            for (int i = 1; i < RUN; ++i) {
+                clearLo |= (hLo << i) | (vLo << (i * WIDTH));
+                clearHi |= shlHi(hLo, hHi, i) | shlHi(vLo, vHi, i * WIDTH);
+            }
+            clearHi &= HI_MASK;
+
+            cellsCleared += Long.bitCount(clearLo) + Long.bitCount(clearHi);
+            lo[t] = mLo & ~clearLo;
+            hi[t] = mHi & ~clearHi;
+            cleared = true;
+        }
+        return cleared;
+    }
+
+    /**
+     * Shift blocks right to fill empty cells in every row at once.  Each pass
+     * moves every block that has an empty cell to its right by one column.
+     */
+    private void compact() {
+        while (true) {
+            long occLo = 0, occHi = 0;
+            for (int t = 0; t < NUM_TYPES; ++t) {
+                occLo |= lo[t];
+                occHi |= hi[t];
+            }
+            final long emptyLo = ~occLo;
+            final long emptyHi = ~occHi & HI_MASK;
+            final long moveLo  = occLo & shrLo(emptyLo, emptyHi, 1) & NOT_LAST_COL_LO;
+            final long moveHi  = occHi & (emptyHi >>> 1)            & NOT_LAST_COL_HI;
+            if ((moveLo | moveHi) == 0) {
+                return;
+            }
+            for (int t = 0; t < NUM_TYPES; ++t) {
+                final long tLo = lo[t] & moveLo;
+                final long tHi = hi[t] & moveHi;
+                lo[t] = (lo[t] & ~moveLo) | (tLo << 1);
+                hi[t] = ((hi[t] & ~moveHi) | shlHi(tLo, tHi, 1)) & HI_MASK;
+            }
+        }
+    }
+
+    // Low word of a 128 bit right shift by n (1 <= n <= 63)
+    private static long shrLo(long lo, long hi, int n) {
+        return (lo >>> n) | (hi << (64 - n));
+    }
+
+    // High word of a 128 bit left shift by n (1 <= n <= 63)
+    private static long shlHi(long lo, long hi, int n) {
+        return (hi << n) | (lo >>> (64 - n));
+    }
+
+}
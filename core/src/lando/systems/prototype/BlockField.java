@@ -1,11 +1,9 @@
 package lando.systems.prototype;
 
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
 import lando.systems.prototype.Block.State;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Brian Ploeckelman created on 1/17/2015.
  */
@@ -13,11 +11,14 @@ public class BlockField {
 
     public static final  int   FIELD_WIDTH      = 6;
     public static final  int   FIELD_HEIGHT     = 12;
-    public static final  float FIELD_START_X    = View.VIEW_WIDTH - FIELD_WIDTH * Block.SIZE;
-    public static final  float FIELD_START_Y    = View.BLOCK_QUEUE_MARGIN_TOP;
-    private static final int   NUM_MATCH_BLOCKS = 3;
+    public static final  float FIELD_START_X    = Layout.VIEW_WIDTH - FIELD_WIDTH * Block.SIZE;
+    public static final  float FIELD_START_Y    = Layout.BLOCK_QUEUE_MARGIN_TOP;
+    public static final  int   NUM_MATCH_BLOCKS = 3;
 
     Block[][] blocks;
+    int       version;
+    long      hash;
+    Profiler  profiler = Profiler.NONE;
 
     public BlockField() {
         Vector2 position = new Vector2();
@@ -35,40 +36,67 @@ public class BlockField {
 
     public final Block[][] getBlocks() { return blocks; }
 
+    /**
+     * Returns a counter that changes whenever any block's type changes, so
+     * consumers can cache what they derive from the field
+     */
+    public final int getVersion() { return version; }
+
+    /**
+     * Returns the Zobrist hash of the block types in the field, kept up to
+     * date as blocks land, clear and shift
+     */
+    public final long getHash() { return hash; }
+
+    /**
+     * Call after changing block types directly through getBlocks()
+     */
+    public void markDirty() {
+        ++version;
+        hash = Zobrist.hash(this);
+    }
+
     // -------------------------------------------------------------------------
     // Public interface
     // -------------------------------------------------------------------------
 
-    public void clampToRow(Block flung, Vector2 touch) {
-        Block block;
-        for (int i = 0; i < blocks.length; ++i) {
-            block = blocks[i][0];
-            if (touch.y >= block.position.y
-             && touch.y <= block.position.y + Block.SIZE) {
-                flung.position.y = block.position.y;
-                flung.rowIndex = i;
-                break;
-            }
+    /**
+     * Returns the index of the row containing the given y coordinate, or -1
+     */
+    public int clampToRow(float touchY) {
+        final float offset = touchY - FIELD_START_Y;
+        if (offset < 0 || offset > FIELD_HEIGHT * Block.SIZE) {
+            return -1;
         }
+        return Math.min((int) (offset / Block.SIZE), FIELD_HEIGHT - 1);
+    }
+
+    public float getRowY(int row) {
+        return FIELD_START_Y + row * Block.SIZE;
     }
 
     public boolean isRowFull(int row) {
         return (getLastEmptyBlockInRow(row) == null);
     }
 
-    public boolean checkForLanding(Block block) {
-        if (block.rowIndex < 0 || block.rowIndex >= blocks.length) {
+    public boolean checkForLanding(BlockType type, int row, float x) {
+        if (row < 0 || row >= blocks.length) {
             return false;
         }
 
-        final Block lastEmptyBlock = getLastEmptyBlockInRow(block.rowIndex);
+        final Block lastEmptyBlock = getLastEmptyBlockInRow(row);
         if (lastEmptyBlock == null) {
             return false;
         }
 
-        if (block.position.x >= lastEmptyBlock.position.x) {
-            lastEmptyBlock.type  = block.type;
+        if (x >= lastEmptyBlock.position.x) {
+            lastEmptyBlock.type  = type;
             lastEmptyBlock.state = State.LANDED;
+            ++version;
+            hash ^= Zobrist.cell(row, lastEmptyBlock.colIndex, type);
+            for (int i = 0; i < listeners.size; ++i) {
+                listeners.get(i).landed(row, lastEmptyBlock.colIndex, type);
+            }
 //            lastEmptyBlock.matched = false;
             checkForMatches(lastEmptyBlock);
             return true;
@@ -76,118 +104,208 @@ public class BlockField {
         return false;
     }
 
-    private List<Block> matchedBlocks = new ArrayList<Block>();
-    public void checkForMatches(Block... blocksToCheck) {
-        if (blocksToCheck.length == 0) return;
+    /**
+     * Resolve any runs that include the given block, then keep clearing and
+     * compacting until the field is stable.  Only the cells moved by the
+     * previous shift are rechecked at each step of the cascade.
+     */
+    public void checkForMatches(Block block) {
+        profiler.begin(Profiler.CASCADE);
+        cascadeStats.reset();
+        clearTouchedRows();
 
-        for (Block block : blocksToCheck) {
-            boolean didMatch = false;
+        numChecks = 0;
+        checkCells[numChecks++] = block.rowIndex * FIELD_WIDTH + block.colIndex;
+        markRowTouched(block.rowIndex);
 
-            matchedBlocks.clear();
-            matchedBlocks.add(block);
-            block.matched = true;
+        while (numChecks > 0) {
+            // Collect every run that passes through a cell on the worklist
+            profiler.begin(Profiler.COLLECT_RUNS);
+            numCleared = 0;
+            for (int i = 0; i < numChecks; ++i) {
+                collectRuns(checkCells[i] / FIELD_WIDTH, checkCells[i] % FIELD_WIDTH);
+            }
+            profiler.end(Profiler.COLLECT_RUNS);
+            if (numCleared == 0) {
+                break;
+            }
+            ++version;
+            ++cascadeStats.chainDepth;
+            cascadeStats.cellsCleared += numCleared;
+            for (int i = 0; i < listeners.size; ++i) {
+                listeners.get(i).matched(clearedCells, numCleared, cascadeStats.chainDepth);
+            }
 
-            // Walk left
-            for (int col = block.colIndex - 1; col >= 0; --col) {
-                if (doBlocksMatch(block, blocks[block.rowIndex][col])) {
-                    matchedBlocks.add(   blocks[block.rowIndex][col]);
-                } else {
-                    break;
+            // Process matching blocks from list: animate and reset their states
+            numDirtyRows = 0;
+            for (int i = 0; i < numCleared; ++i) {
+                final Block cleared = blocks[clearedCells[i] / FIELD_WIDTH]
+                                            [clearedCells[i] % FIELD_WIDTH];
+                cleared.matched = false;
+                scoredRowRun[clearedCells[i]] = false;
+                scoredColRun[clearedCells[i]] = false;
+                hash ^= Zobrist.cell(cleared.rowIndex, cleared.colIndex, cleared.type);
+                cleared.type = BlockType.EMPTY;
+                if (!rowDirty[cleared.rowIndex]) {
+                    rowDirty[cleared.rowIndex] = true;
+                    dirtyRows[numDirtyRows++] = cleared.rowIndex;
                 }
             }
-            // Walk right
-            for (int col = block.colIndex + 1; col < blocks[0].length; ++col) {
-                if (doBlocksMatch(block, blocks[block.rowIndex][col])) {
-                    matchedBlocks.add(   blocks[block.rowIndex][col]);
-                } else {
-                    break;
-                }
+
+            for (int i = 0; i < listeners.size; ++i) {
+                listeners.get(i).cleared(clearedCells, numCleared, cascadeStats.chainDepth);
             }
 
-            // Do we have enough blocks in a row?
-            if (matchedBlocks.size() < NUM_MATCH_BLOCKS) {
-                for (Block matched : matchedBlocks) {
-                    matched.matched = false;
-                }
-            } else {
-                didMatch = true;
+            // Update the dirty rows by shifting blocks to the right to fill empty spaces
+            // Moved blocks become the worklist for the next step of the cascade
+            profiler.begin(Profiler.SHIFT_ROWS);
+            numChecks = 0;
+            for (int i = 0; i < numDirtyRows; ++i) {
+                final int row = dirtyRows[i];
+                rowDirty[row] = false;
+                markRowTouched(row);
+                shiftRow(row);
             }
+            profiler.end(Profiler.SHIFT_ROWS);
+        }
 
-            matchedBlocks.clear();
-            matchedBlocks.add(block);
-            block.matched = true;
+        cascadeStats.rowsTouched = numTouchedRows;
+        for (int i = 0; i < listeners.size; ++i) {
+            listeners.get(i).cascadeFinished(cascadeStats);
+        }
+        profiler.end(Profiler.CASCADE);
+    }
 
-            // Walk down
-            for (int row = block.rowIndex - 1; row >= 0; --row) {
-                if (doBlocksMatch(block, blocks[row][block.colIndex])) {
-                    matchedBlocks.add(   blocks[row][block.colIndex]);
-                } else {
-                    break;
-                }
+    public final CascadeStats getCascadeStats() { return cascadeStats; }
+
+    /**
+     * Returns the running score for every cascade this field has resolved
+     */
+    public final Score getScore() { return score; }
+
+    public void addListener(BlockFieldListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(BlockFieldListener listener) {
+        listeners.removeValue(listener, true);
+    }
+
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    // Preallocated cascade worklists, indexed by row * FIELD_WIDTH + col
+    private final int[]        checkCells   = new int[FIELD_WIDTH * FIELD_HEIGHT];
+    private final int[]        clearedCells = new int[FIELD_WIDTH * FIELD_HEIGHT];
+    private final int[]        dirtyRows    = new int[FIELD_HEIGHT];
+    private final int[]        touchedRows  = new int[FIELD_HEIGHT];
+    private final boolean[]    rowDirty     = new boolean[FIELD_HEIGHT];
+    private final boolean[]    rowTouched   = new boolean[FIELD_HEIGHT];
+    private final CascadeStats cascadeStats = new CascadeStats();
+    private final Score        score        = new Score();
+    // Set on the first cell of each run already scored this cascade step,
+    // every flagged cell is also in clearedCells so the flags reset with them
+    private final boolean[]    scoredRowRun = new boolean[FIELD_WIDTH * FIELD_HEIGHT];
+    private final boolean[]    scoredColRun = new boolean[FIELD_WIDTH * FIELD_HEIGHT];
+    private final Array<BlockFieldListener> listeners = new Array<BlockFieldListener>();
+    private int numChecks;
+    private int numCleared;
+    private int numDirtyRows;
+    private int numTouchedRows;
+
+    /**
+     * Find the horizontal and vertical runs through a cell and add their
+     * blocks to the cleared list if they are long enough.  Several cells on
+     * the worklist can share a run, each run is only scored once.
+     */
+    private void collectRuns(int row, int col) {
+        final BlockType type = blocks[row][col].type;
+        if (BlockType.EMPTY.equals(type)) {
+            return;
+        }
+
+        // Walk left and right
+        int first = col;
+        int last  = col;
+        while (first > 0                    && type.equals(blocks[row][first - 1].type)) --first;
+        while (last  < blocks[0].length - 1 && type.equals(blocks[row][last  + 1].type)) ++last;
+        if (last - first + 1 >= NUM_MATCH_BLOCKS) {
+            final int start = row * FIELD_WIDTH + first;
+            if (!scoredRowRun[start]) {
+                scoredRowRun[start] = true;
+                cascadeStats.points += score.addRun(last - first + 1, true, cascadeStats.chainDepth + 1);
             }
-            // Walk up
-            for (int row = block.rowIndex + 1; row < blocks.length; ++row) {
-                if (doBlocksMatch(block, blocks[row][block.colIndex])) {
-                    matchedBlocks.add(   blocks[row][block.colIndex]);
-                } else {
-                    break;
-                }
+            for (int c = first; c <= last; ++c) {
+                markMatched(blocks[row][c]);
             }
+        }
 
-            // Do we have enough blocks in a column?
-            if (matchedBlocks.size() < NUM_MATCH_BLOCKS) {
-                for (Block matched : matchedBlocks) {
-                    matched.matched = false;
-                }
-            } else {
-                didMatch = true;
+        // Walk down and up
+        first = row;
+        last  = row;
+        while (first > 0                 && type.equals(blocks[first - 1][col].type)) --first;
+        while (last  < blocks.length - 1 && type.equals(blocks[last  + 1][col].type)) ++last;
+        if (last - first + 1 >= NUM_MATCH_BLOCKS) {
+            final int start = first * FIELD_WIDTH + col;
+            if (!scoredColRun[start]) {
+                scoredColRun[start] = true;
+                cascadeStats.points += score.addRun(last - first + 1, false, cascadeStats.chainDepth + 1);
             }
-            matchedBlocks.clear();
-
-            if (didMatch) {
-                block.matched = true;
+            for (int r = first; r <= last; ++r) {
+                markMatched(blocks[r][col]);
             }
         }
+    }
 
-        // Process matching blocks from list: animate and reset their states
-        for (Block[] blockRow : blocks) {
-            for (Block block : blockRow) {
-                if (block.matched) {
-                    block.matched = false;
-                    block.type = BlockType.EMPTY;
-                }
-            }
+    private void markMatched(Block block) {
+        if (!block.matched) {
+            block.matched = true;
+            clearedCells[numCleared++] = block.rowIndex * FIELD_WIDTH + block.colIndex;
         }
+    }
 
-        // TODO(brian): Update the player's score, track num row/col matches and their size, apply multiplier for longer runs
-
-        // Update the board by shifting blocks to the right to fill empty spaces
-        // Add any shifted blocks to a list of blocks to be checked again
-        List<Block> blocksToRecheck = new ArrayList<Block>();
-        for (Block[] blockRow : blocks) {
-            for (int i = blockRow.length - 1; i >= 0; --i) {
-                if (BlockType.EMPTY.equals(blockRow[i].type)) {
-                    for (int j = i - 1; j >= 0; --j) {
-                        if (!BlockType.EMPTY.equals(blockRow[j].type)) {
-                            blockRow[i].type = blockRow[j].type;
-                            blockRow[j].type = BlockType.EMPTY;
-                            blocksToRecheck.add(blockRow[i]);
-                            break;
-                        }
-                    }
+    /**
+     * Pack a row's blocks to the right, adding each moved block to the worklist.
+     */
+    private void shiftRow(int row) {
+        final Block[] blockRow = blocks[row];
+        int target = blockRow.length - 1;
+        for (int col = blockRow.length - 1; col >= 0; --col) {
+            if (BlockType.EMPTY.equals(blockRow[col].type)) {
+                continue;
+            }
+            if (col != target) {
+                hash ^= Zobrist.cell(row, col,    blockRow[col].type)
+                      ^ Zobrist.cell(row, target, blockRow[col].type);
+                blockRow[target].type = blockRow[col].type;
+                blockRow[col].type = BlockType.EMPTY;
+                checkCells[numChecks++] = row * FIELD_WIDTH + target;
+                for (int i = 0; i < listeners.size; ++i) {
+                    listeners.get(i).shifted(row, col, target, blockRow[target].type, cascadeStats.chainDepth);
                 }
             }
+            --target;
         }
+    }
 
-        // Recheck any blocks that moved during the board update
-        if (!blocksToRecheck.isEmpty()) {
-            checkForMatches(blocksToRecheck.toArray(new Block[blocksToRecheck.size()]));
+    private void markRowTouched(int row) {
+        if (!rowTouched[row]) {
+            rowTouched[row] = true;
+            touchedRows[numTouchedRows++] = row;
         }
     }
 
-    // -------------------------------------------------------------------------
-    // Private implementation
-    // -------------------------------------------------------------------------
+    private void clearTouchedRows() {
+        for (int i = 0; i < numTouchedRows; ++i) {
+            rowTouched[touchedRows[i]] = false;
+        }
+        numTouchedRows = 0;
+    }
 
     private Block getLastEmptyBlockInRow(int row) {
         Block lastEmptyBlock = null;
@@ -201,14 +319,6 @@ public class BlockField {
         return lastEmptyBlock;
     }
 
-    private boolean doBlocksMatch(Block block1, Block block2) {
-        if (block1.type.equals(block2.type)) {
-            block1.matched = true;
-            block2.matched = true;
-            return true;
-        }
-        return false;
-    }
 
 
 }
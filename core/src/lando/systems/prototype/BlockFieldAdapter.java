@@ -0,0 +1,23 @@
+package lando.systems.prototype;
+
+/**
+ * Empty BlockFieldListener, override only the events you need
+ */
+public class BlockFieldAdapter implements BlockFieldListener {
+
+    @Override
+    public void landed(int row, int col, BlockType type) {}
+
+    @Override
+    public void matched(int[] cells, int numCells, int chainDepth) {}
+
+    @Override
+    public void cleared(int[] cells, int numCells, int chainDepth) {}
+
+    @Override
+    public void shifted(int row, int fromCol, int toCol, BlockType type, int chainDepth) {}
+
+    @Override
+    public void cascadeFinished(CascadeStats stats) {}
+
+}
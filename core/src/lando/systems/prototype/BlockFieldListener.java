@@ -0,0 +1,40 @@
+package lando.systems.prototype;
+
+/**
+ * Receives changes to a BlockField as they happen, see BlockField.addListener.
+ *
+ * Cells are encoded as row * FIELD_WIDTH + col.  Cell arrays belong to the
+ * field and are only valid for the duration of the call, copy anything that
+ * needs to be kept.  Events for one landing arrive in this order: landed,
+ * then for each cascade step matched, cleared and shifted, then
+ * cascadeFinished.
+ */
+public interface BlockFieldListener {
+
+    /**
+     * A block of the given type came to rest at (row, col)
+     */
+    public void landed(int row, int col, BlockType type);
+
+    /**
+     * Runs were found at the given cells, which still hold their types
+     * @param chainDepth cascade step, starting at 1 for the landing's own runs
+     */
+    public void matched(int[] cells, int numCells, int chainDepth);
+
+    /**
+     * The matched cells were emptied
+     */
+    public void cleared(int[] cells, int numCells, int chainDepth);
+
+    /**
+     * A block slid right along its row to fill a gap left by a clear
+     */
+    public void shifted(int row, int fromCol, int toCol, BlockType type, int chainDepth);
+
+    /**
+     * The field is stable again after a landing, stats hold the whole cascade
+     */
+    public void cascadeFinished(CascadeStats stats);
+
+}
@@ -0,0 +1,51 @@
+package lando.systems.prototype;
+
+import com.badlogic.gdx.graphics.Color;
+
+/**
+ * Colors that blocks are drawn in, kept on the render side so BlockType
+ * stays free of graphics types.  The colors are private copies made once,
+ * callers copy them out into a Color of their own, so no caller can tint
+ * every block by changing a shared instance.
+ */
+public final class BlockPalette {
+
+    private static final Color[] COLORS = new Color[BlockType.values().length];
+
+    static {
+        for (BlockType type : BlockType.values()) {
+            COLORS[type.ordinal()] = new Color(getBaseColor(type));
+        }
+    }
+
+    /**
+     * Copy the color for blocks of a type into out, and return out
+     */
+    public static Color copyColor(BlockType type, Color out) {
+        return out.set(COLORS[type.ordinal()]);
+    }
+
+    private static Color getBaseColor(BlockType type) {
+        switch (type) {
+            case RED:
+                return Color.RED;
+            case ORANGE:
+                return Color.ORANGE;
+            case YELLOW:
+                return Color.YELLOW;
+            case GREEN:
+                return Color.GREEN;
+            case BLUE:
+                return Color.BLUE;
+            case INDIGO:
+                return new Color(0.294f, 0, 0.510f, 1);
+            case VIOLET:
+                return new Color(0.5f, 0, 1, 1);
+            default:
+                return Color.WHITE;
+        }
+    }
+
+    private BlockPalette() {}
+
+}
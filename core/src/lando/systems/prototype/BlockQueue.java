@@ -0,0 +1,57 @@
+package lando.systems.prototype;
+
+/**
+ * Fixed size ring buffer of upcoming block types.  Queued blocks have no
+ * positions of their own, slot i is always drawn at getX(i) so polling just
+ * moves the head instead of shifting every queued block.
+ */
+public class BlockQueue {
+
+    public static final float SPACING = Block.SIZE + Layout.BLOCK_PADDING;
+
+    private final BlockType[] types;
+    private       int         head;
+
+    public BlockQueue(int size) {
+        types = new BlockType[size];
+        for (int i = 0; i < size; ++i) {
+            types[i] = BlockType.EMPTY;
+        }
+        head = 0;
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    public int size() {
+        return types.length;
+    }
+
+    public BlockType get(int i) {
+        return types[(head + i) % types.length];
+    }
+
+    public void set(int i, BlockType type) {
+        types[(head + i) % types.length] = type;
+    }
+
+    /**
+     * Remove the type at the front of the queue and append the given type
+     */
+    public BlockType poll(BlockType next) {
+        final BlockType first = types[head];
+        types[head] = next;
+        head = (head + 1) % types.length;
+        return first;
+    }
+
+    public float getX(int i) {
+        return Layout.BLOCK_QUEUE_POSITION_X + i * SPACING;
+    }
+
+    public float getY() {
+        return Layout.BLOCK_QUEUE_POSITION_Y;
+    }
+
+}
@@ -1,8 +1,5 @@
 package lando.systems.prototype;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Color;
-
 import java.util.Random;
 
 /**
@@ -29,41 +26,14 @@ public enum BlockType {
         return value;
     }
 
-    // -------------------------------------------------------------------------
-    // Block Type -> Color conversion
-    // -------------------------------------------------------------------------
-
-    private static Color COLOR_INDIGO = new Color(0.294f, 0, 0.510f, 1);
-    private static Color COLOR_VIOLET = new Color(0.5f, 0, 1, 1);
-
-    public Color getColor() {
-        switch (this) {
-            case RED:
-                return Color.RED;
-            case ORANGE:
-                return Color.ORANGE;
-            case YELLOW:
-                return Color.YELLOW;
-            case GREEN:
-                return Color.GREEN;
-            case BLUE:
-                return Color.BLUE;
-            case INDIGO:
-                return COLOR_INDIGO;
-            case VIOLET:
-                return COLOR_VIOLET;
-            default:
-                return Color.WHITE;
-        }
-    }
-
     // -------------------------------------------------------------------------
     // Static Utility Methods
     // -------------------------------------------------------------------------
 
-    private static Random random = new Random();
-
-    public static BlockType getRandom() {
+    /**
+     * Returns a random block type, the caller owns the Random so games can be seeded
+     */
+    public static BlockType getRandom(Random random) {
         return fromInt(random.nextInt(NUM_BLOCKS.getValue()));
     }
 
@@ -74,9 +44,7 @@ public enum BlockType {
             }
         }
 
-        Gdx.app.error("WARN",
-                      "Unable to get Block from int '" + i + "'");
-        return RED;
+        throw new IllegalArgumentException("Unable to get Block from int '" + i + "'");
     }
 
 }
@@ -0,0 +1,181 @@
+package lando.systems.prototype;
+
+/**
+ * Expectimax search over BitBoards for where to fling upcoming blocks.
+ * Each ply places one block: into any row that isn't full, or nowhere (the
+ * block falls past the field).  Types of blocks that are already known come
+ * from the caller, past those each ply is a chance node averaging over every
+ * type, since the queue refills uniformly at random.
+ *
+ * Boards are copied into a preallocated stack, one per ply, so trying a move
+ * and undoing it is a 14 long copy and the search never touches Block
+ * objects or allocates.  With a CascadeCache, landings the search has
+ * already resolved, from any branch or earlier search, are looked up.
+ */
+public class BoardSearch {
+
+    public static final int NO_ROW = -1;
+
+    private static final int   HEIGHT = BlockField.FIELD_HEIGHT;
+    private static final int   WIDTH  = BlockField.FIELD_WIDTH;
+    private static final int   NUM_TYPES = BitBoard.NUM_TYPES;
+    private static final BlockType[] TYPES = BlockType.values();
+
+    // Evaluation weights
+    private static final float LAND_REWARD     = 6;
+    private static final float CLEAR_REWARD    = 10;
+    private static final float CHAIN_REWARD    = 15;
+    private static final float PAIR_REWARD     = 3;
+    private static final float FULL_ROW_COST   = 40;
+
+    private final BitBoard[]   stack;
+    private final CascadeCache cache;
+    private final int          maxDepth;
+
+    private byte[] types;
+    private int    numKnown;
+    private int    maxFirstRow;
+    private long   nodes;
+    private float  bestValue;
+
+    /**
+     * @param maxDepth most plies searched, the depth of the board stack
+     */
+    public BoardSearch(int maxDepth) {
+        this(maxDepth, null);
+    }
+
+    /**
+     * @param cache resolved landings to reuse and add to, or null to always resolve
+     */
+    public BoardSearch(int maxDepth, CascadeCache cache) {
+        this.maxDepth = maxDepth;
+        this.cache    = cache;
+        this.stack    = new BitBoard[maxDepth + 1];
+        for (int i = 0; i <= maxDepth; ++i) {
+            stack[i] = new BitBoard();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the best row for the first of the known types, or NO_ROW to let it fall
+     * @param types       upcoming block type ordinals, the first is the block to place
+     * @param numKnown    how many entries of types to use, later plies are chance nodes
+     * @param maxFirstRow highest row the first block can still reach
+     * @param depth       plies to search, at most the stack depth
+     */
+    public int search(BitBoard root, byte[] types, int numKnown, int maxFirstRow, int depth) {
+        this.types       = types;
+        this.numKnown    = numKnown;
+        this.maxFirstRow = maxFirstRow;
+        this.nodes       = 0;
+
+        depth = Math.min(depth, maxDepth);
+        stack[0].set(root);
+        if (depth == 0 || numKnown == 0) {
+            bestValue = evaluate(stack[0]);
+            return NO_ROW;
+        }
+
+        // Same as a max node, but remember which row won
+        int   bestRow = NO_ROW;
+        float best    = value(0, depth);
+        final BlockType type = TYPES[types[0]];
+        for (int row = Math.min(maxFirstRow, HEIGHT - 1); row >= 0; --row) {
+            final float value = place(0, row, type, depth);
+            if (value > best) {
+                best    = value;
+                bestRow = row;
+            }
+        }
+        bestValue = best;
+        return bestRow;
+    }
+
+    public float getBestValue() { return bestValue; }
+    public long  getNodes()     { return nodes; }
+
+    public CascadeCache getCache() { return cache; }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    /**
+     * Value of the board at stack[ply] with the block for this ply not placed
+     * anywhere, so the search carries on to the next ply
+     */
+    private float value(int ply, int depth) {
+        ++nodes;
+        if (ply + 1 >= depth) {
+            return evaluate(stack[ply]);
+        }
+        stack[ply + 1].set(stack[ply]);
+        return next(ply + 1, depth);
+    }
+
+    /**
+     * Place a block at row on a copy of stack[ply] and return the value after it
+     */
+    private float place(int ply, int row, BlockType type, int depth) {
+        ++nodes;
+        final BitBoard board = stack[ply + 1];
+        board.set(stack[ply]);
+        final int col = (cache != null) ? cache.land(board, row, type)
+                                        : board.land(row, type);
+        if (col < 0) {
+            return Float.NEGATIVE_INFINITY;
+        }
+        final int chain = board.getChainDepth();
+        float reward = LAND_REWARD + board.getCellsCleared() * CLEAR_REWARD;
+        if (chain > 1) {
+            reward += chain * chain * CHAIN_REWARD;
+        }
+        if (ply + 1 >= depth) {
+            return reward + evaluate(board);
+        }
+        return reward + next(ply + 1, depth);
+    }
+
+    /**
+     * Best value for the block at this ply, averaged over every type once
+     * the known types run out
+     */
+    private float next(int ply, int depth) {
+        if (ply < numKnown) {
+            return best(ply, TYPES[types[ply]], depth);
+        }
+        float total = 0;
+        for (int t = 0; t < NUM_TYPES; ++t) {
+            total += best(ply, TYPES[t], depth);
+        }
+        return total / NUM_TYPES;
+    }
+
+    private float best(int ply, BlockType type, int depth) {
+        float best = value(ply, depth);
+        for (int row = 0; row < HEIGHT; ++row) {
+            if (stack[ply].isRowFull(row)) continue;
+            best = Math.max(best, place(ply, row, type, depth));
+        }
+        return best;
+    }
+
+    /**
+     * Static value of a board: reward same-typed neighbours, charge for
+     * filling rows, most of all for rows that are full and bounce blocks
+     */
+    private static float evaluate(BitBoard board) {
+        float value = board.countAdjacentPairs() * PAIR_REWARD;
+        for (int row = 0; row < HEIGHT; ++row) {
+            final int count = board.getRowCount(row);
+            value -= (count == WIDTH) ? FULL_ROW_COST : count * count;
+        }
+        return value;
+    }
+
+}
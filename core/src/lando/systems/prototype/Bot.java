@@ -0,0 +1,204 @@
+package lando.systems.prototype;
+
+/**
+ * Plays the game through the same flings a player makes, for automated
+ * playtesting or to hint at a good move.  The bot plans for the oldest
+ * dropping block it hasn't dealt with yet: a BoardSearch picks the row to
+ * fling it into, or none, using the types of the blocks behind it in the
+ * air and in the queue.  The fling is due once the falling block covers
+ * the middle of that row.
+ *
+ * Plans are only redone when the target block or the field changes, so a
+ * full search doesn't run every tick.  Consecutive plans share most of their
+ * positions, so landings are resolved through a CascadeCache kept between them.
+ */
+public class Bot {
+
+    public static final int DEFAULT_DEPTH = 3;
+
+    private static final int   MAX_KNOWN = 16;
+    private static final float HALF_SIZE = Block.SIZE / 2f;
+
+    private final BoardSearch search;
+    private final BitBoard    board = new BitBoard();
+    private final byte[]      types = new byte[MAX_KNOWN];
+    private final int[]       order = new int[MAX_KNOWN];
+    private final int         depth;
+
+    private double handledSpawnTime = Double.NEGATIVE_INFINITY;
+    private double targetSpawnTime;
+    private int    targetFieldVersion;
+    private int    plannedRow = BoardSearch.NO_ROW;
+    private int    plannedCol = -1;
+    private boolean planned;
+    private float  flingX;
+    private float  flingY;
+
+    public Bot() {
+        this(DEFAULT_DEPTH);
+    }
+
+    /**
+     * @param depth how many blocks ahead to search, including the one being flung
+     */
+    public Bot(int depth) {
+        this.depth  = depth;
+        this.search = new BoardSearch(depth, new CascadeCache());
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    /**
+     * Plan against the model's current state
+     * Returns true if a fling at getFlingX(), getFlingY() is due now
+     */
+    public boolean update(Model model) {
+        final DroppingBlocks dropping = model.getDroppingBlocks();
+        final BlockField     field    = model.getBlockField();
+        final double         time     = model.getTime();
+
+        final int target = findTarget(dropping);
+        if (target < 0) {
+            planned    = false;
+            plannedRow = BoardSearch.NO_ROW;
+            plannedCol = -1;
+            return false;
+        }
+
+        final float y = dropping.getY(target, time);
+        if (!planned
+         || dropping.getSpawnTime(target) != targetSpawnTime
+         || field.getVersion() != targetFieldVersion) {
+            plan(model, target, y);
+        }
+
+        if (plannedRow == BoardSearch.NO_ROW) {
+            // Let it fall and move on to the next block
+            handledSpawnTime = targetSpawnTime;
+            planned = false;
+            return false;
+        }
+
+        final float rowCenterY = field.getRowY(plannedRow) + HALF_SIZE;
+        if (y > rowCenterY) {
+            return false;
+        }
+        if (y + Block.SIZE < rowCenterY) {
+            // Fell past the row somehow, give up on this block
+            handledSpawnTime = targetSpawnTime;
+            planned = false;
+            return false;
+        }
+
+        flingX = dropping.getX(target, time) + HALF_SIZE;
+        flingY = rowCenterY;
+        handledSpawnTime = targetSpawnTime;
+        planned = false;
+        return true;
+    }
+
+    public float getFlingX() { return flingX; }
+    public float getFlingY() { return flingY; }
+
+    /**
+     * Returns the row the current target block is planned to go into, or BoardSearch.NO_ROW
+     */
+    public int getPlannedRow() { return plannedRow; }
+
+    /**
+     * Returns the field column the planned block would land in, or -1
+     */
+    public int getPlannedCol() { return plannedCol; }
+
+    public long getNodesSearched() { return search.getNodes(); }
+
+    public CascadeCache getCache() { return search.getCache(); }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    /**
+     * The oldest dropping block that hasn't been flung or passed on
+     */
+    private int findTarget(DroppingBlocks dropping) {
+        int target = -1;
+        for (int i = 0; i < dropping.size(); ++i) {
+            final double spawnTime = dropping.getSpawnTime(i);
+            if (spawnTime <= handledSpawnTime) continue;
+            if (target < 0 || spawnTime < dropping.getSpawnTime(target)) {
+                target = i;
+            }
+        }
+        return target;
+    }
+
+    private void plan(Model model, int target, float y) {
+        final DroppingBlocks dropping = model.getDroppingBlocks();
+        final BlockField     field    = model.getBlockField();
+
+        targetSpawnTime    = dropping.getSpawnTime(target);
+        targetFieldVersion = field.getVersion();
+        planned            = true;
+
+        // The highest row the block can still be flung into is the one its top edge is in
+        final int maxRow = (y + Block.SIZE >= field.getRowY(BlockField.FIELD_HEIGHT))
+                         ? BlockField.FIELD_HEIGHT - 1
+                         : field.clampToRow(y + Block.SIZE);
+        if (maxRow < 0) {
+            plannedRow = BoardSearch.NO_ROW;
+            plannedCol = -1;
+            return;
+        }
+
+        // Start from the field as it will be once blocks already flung have landed
+        board.load(field);
+        final InPlayBlocks flinging = model.getFlingingBlocks();
+        for (int i = 0; i < flinging.size(); ++i) {
+            if (flinging.getRow(i) >= 0) {
+                search.getCache().land(board, flinging.getRow(i), flinging.getType(i));
+            }
+        }
+
+        final int numKnown = collectTypes(dropping, model.getBlockQueue(), target);
+        plannedRow = search.search(board, types, numKnown, maxRow, depth);
+        plannedCol = board.getLandingCol(plannedRow);
+    }
+
+    /**
+     * Fill types with the target's type, then the blocks dropping after it
+     * oldest first, then the queue.  Returns how many types are known.
+     */
+    private int collectTypes(DroppingBlocks dropping, BlockQueue queue, int target) {
+        int n = 0;
+        types[n++] = (byte) dropping.getType(target).ordinal();
+
+        // Removals swap blocks around, so index order isn't spawn order and
+        // every later block is checked.  Only the oldest few are kept, sorted
+        // by spawn time, and a newer block than all of them is dropped
+        // without shifting anything, so a blizzard costs one compare per block.
+        final int maxLater = MAX_KNOWN - 1;
+        int numLater = 0;
+        for (int i = 0; i < dropping.size(); ++i) {
+            final double spawnTime = dropping.getSpawnTime(i);
+            if (spawnTime <= targetSpawnTime) continue;
+            if (numLater == maxLater && spawnTime >= dropping.getSpawnTime(order[maxLater - 1])) continue;
+            int j = (numLater < maxLater) ? numLater++ : maxLater - 1;
+            while (j > 0 && dropping.getSpawnTime(order[j - 1]) > spawnTime) {
+                order[j] = order[j - 1];
+                --j;
+            }
+            order[j] = i;
+        }
+        for (int i = 0; i < numLater && n < MAX_KNOWN; ++i) {
+            types[n++] = (byte) dropping.getType(order[i]).ordinal();
+        }
+        for (int i = 0; i < queue.size() && n < MAX_KNOWN; ++i) {
+            types[n++] = (byte) queue.get(i).ordinal();
+        }
+        return n;
+    }
+
+}
@@ -0,0 +1,124 @@
+package lando.systems.prototype;
+
+/**
+ * Transposition table for landings on a BitBoard.  Where a landing ends up
+ * depends only on the grid, the row and the block type, so the resolved grid
+ * and its cascade stats are stored under the grid's Zobrist hash combined
+ * with the move, and a repeated landing is a copy instead of a cascade.
+ *
+ * The table is a fixed power of two number of slots, one entry per slot,
+ * and a new entry always replaces whatever was in its slot.  Entries are
+ * matched on the full 64 bit key, so a wrong hit needs a 64 bit collision.
+ */
+public class CascadeCache {
+
+    public static final int DEFAULT_CAPACITY = 1 << 13;
+
+    private static final int NUM_TYPES = BitBoard.NUM_TYPES;
+
+    private final int       mask;
+    private final long[]    keys;
+    private final boolean[] used;
+    private final long[]    resultLo;
+    private final long[]    resultHi;
+    private final long[]    resultHash;
+    private final byte[]    chainDepth;
+    private final byte[]    cellsCleared;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public CascadeCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of entries, rounded up to a power of two
+     */
+    public CascadeCache(int capacity) {
+        int size = 1;
+        while (size < capacity) size <<= 1;
+        mask         = size - 1;
+        keys         = new long[size];
+        used         = new boolean[size];
+        resultLo     = new long[size * NUM_TYPES];
+        resultHi     = new long[size * NUM_TYPES];
+        resultHash   = new long[size];
+        chainDepth   = new byte[size];
+        cellsCleared = new byte[size];
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    /**
+     * Same as board.land(row, type), using a stored result when there is one
+     * Returns the landing column, or -1 if the row was full
+     */
+    public int land(BitBoard board, int row, BlockType type) {
+        final int col = board.getLandingCol(row);
+        if (col < 0) {
+            board.chainDepth   = 0;
+            board.cellsCleared = 0;
+            return -1;
+        }
+
+        final long key  = board.hash ^ Zobrist.move(row, type);
+        final int  slot = (int) (key ^ (key >>> 32)) & mask;
+        if (used[slot] && keys[slot] == key) {
+            ++hits;
+            System.arraycopy(resultLo, slot * NUM_TYPES, board.lo, 0, NUM_TYPES);
+            System.arraycopy(resultHi, slot * NUM_TYPES, board.hi, 0, NUM_TYPES);
+            board.hash         = resultHash[slot];
+            board.chainDepth   = chainDepth[slot];
+            board.cellsCleared = cellsCleared[slot];
+            return col;
+        }
+
+        ++misses;
+        if (used[slot]) {
+            ++evictions;
+        }
+        board.land(row, type);
+        used[slot] = true;
+        keys[slot] = key;
+        System.arraycopy(board.lo, 0, resultLo, slot * NUM_TYPES, NUM_TYPES);
+        System.arraycopy(board.hi, 0, resultHi, slot * NUM_TYPES, NUM_TYPES);
+        resultHash[slot]   = board.hash;
+        chainDepth[slot]   = (byte) board.chainDepth;
+        cellsCleared[slot] = (byte) board.cellsCleared;
+        return col;
+    }
+
+    public void clear() {
+        for (int i = 0; i < used.length; ++i) {
+            used[i] = false;
+        }
+        resetStats();
+    }
+
+    public void resetStats() {
+        hits      = 0;
+        misses    = 0;
+        evictions = 0;
+    }
+
+    public int  getCapacity()  { return keys.length; }
+    public long getHits()      { return hits; }
+    public long getMisses()    { return misses; }
+    public long getEvictions() { return evictions; }
+
+    public float getHitRate() {
+        final long lookups = hits + misses;
+        return (lookups == 0) ? 0 : hits / (float) lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "hits " + hits + ", misses " + misses + ", evictions " + evictions
+             + ", hit rate " + (int) (getHitRate() * 100) + "%";
+    }
+
+}
@@ -0,0 +1,30 @@
+package lando.systems.prototype;
+
+/**
+ * Summary of the most recent cascade resolved by BlockField.checkForMatches
+ */
+public class CascadeStats {
+
+    int chainDepth;
+    int cellsCleared;
+    int rowsTouched;
+    int points;
+
+    public int getChainDepth()   { return chainDepth; }
+    public int getCellsCleared() { return cellsCleared; }
+    public int getRowsTouched()  { return rowsTouched; }
+    public int getPoints()       { return points; }
+
+    void reset() {
+        chainDepth   = 0;
+        cellsCleared = 0;
+        rowsTouched  = 0;
+        points       = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "chain " + chainDepth + ", cleared " + cellsCleared + ", rows " + rowsTouched + ", points " + points;
+    }
+
+}
@@ -0,0 +1,353 @@
+package lando.systems.prototype;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * A field with the same rules as BlockField, sized at runtime and meant for
+ * endless and stress modes with thousands of rows and columns.  Blocks land
+ * in the last empty cell of a row, runs of NUM_MATCH_BLOCKS clear, and rows
+ * pack to the right until the field is stable.
+ *
+ * Cells are stored in CHUNK_SIZE square chunks that only exist while they
+ * hold a block, so empty regions cost nothing.  Placing a block marks its
+ * chunk dirty, and each match pass only scans the dirty chunks; compaction
+ * only walks the occupied part of rows that lost a block.  Both memory and
+ * the cost of a landing follow the occupied area rather than the board size.
+ */
+public class ChunkedField {
+
+    public static final int CHUNK_SHIFT = 4;
+    public static final int CHUNK_SIZE  = 1 << CHUNK_SHIFT;
+    public static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+    public static final int MAX_SIZE    = 1 << 14;
+
+    private static final int         CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int         RUN        = BlockField.NUM_MATCH_BLOCKS;
+    private static final BlockType[] TYPES      = BlockType.values();
+
+    /**
+     * Cells hold a type ordinal + 1, so a new chunk is all empty
+     */
+    static class Chunk implements Pool.Poolable {
+        final byte[]    cells   = new byte[CHUNK_CELLS];
+        final boolean[] matched = new boolean[CHUNK_CELLS];
+        int     key;
+        int     count;
+        boolean dirty;
+
+        @Override
+        public void reset() {
+            for (int i = 0; i < CHUNK_CELLS; ++i) {
+                cells[i]   = 0;
+                matched[i] = false;
+            }
+            count = 0;
+            dirty = false;
+        }
+    }
+
+    final int width;
+    final int height;
+    final int chunksWide;
+
+    final IntMap<Chunk> chunks    = new IntMap<Chunk>();
+    final IntIntMap     rowCounts = new IntIntMap();
+    int                 numOccupied;
+
+    public ChunkedField(int width, int height) {
+        if (width  < 1 || width  > MAX_SIZE
+         || height < 1 || height > MAX_SIZE) {
+            throw new IllegalArgumentException("Field size " + width + "x" + height
+                                             + " out of range, 1 - " + MAX_SIZE);
+        }
+        this.width      = width;
+        this.height     = height;
+        this.chunksWide = (width + CHUNK_MASK) >> CHUNK_SHIFT;
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    public int getWidth()  { return width; }
+    public int getHeight() { return height; }
+
+    public BlockType get(int row, int col) {
+        final Chunk chunk = chunks.get(chunkKey(row, col));
+        if (chunk == null) {
+            return BlockType.EMPTY;
+        }
+        final int cell = chunk.cells[cellIndex(row, col)];
+        return (cell == 0) ? BlockType.EMPTY : TYPES[cell - 1];
+    }
+
+    public int getRowCount(int row) {
+        return rowCounts.get(row, 0);
+    }
+
+    public boolean isRowFull(int row) {
+        return getRowCount(row) >= width;
+    }
+
+    /**
+     * Returns the column the next landing block would occupy in the given row,
+     * or -1 if the row is full.  Rows are always packed to the right.
+     */
+    public int getLandingCol(int row) {
+        if (row < 0 || row >= height) {
+            return -1;
+        }
+        return width - 1 - getRowCount(row);
+    }
+
+    /**
+     * Drop a block of the given type into a row and resolve any cascade.
+     * Returns the landing column, or -1 if the row was full.
+     */
+    public int land(int row, BlockType type) {
+        cascadeStats.reset();
+        final int col = getLandingCol(row);
+        if (col < 0) {
+            return -1;
+        }
+        put(row, col, type.ordinal() + 1);
+        rowCounts.put(row, width - col);
+        touchedRows.put(row, 0);
+        resolve();
+        return col;
+    }
+
+    public void clear() {
+        for (Chunk chunk : chunks.values()) {
+            chunkPool.free(chunk);
+        }
+        chunks.clear();
+        rowCounts.clear();
+        dirtyChunks.clear();
+        numOccupied = 0;
+    }
+
+    /**
+     * Returns the most recent landing's cascade, scored with the same rules
+     * as BlockField, but not added to any running Score
+     */
+    public final CascadeStats getCascadeStats() { return cascadeStats; }
+
+    public int getNumOccupied()  { return numOccupied; }
+    public int getNumChunks()    { return chunks.size; }
+    public int getNumRowsInUse() { return rowCounts.size; }
+
+    /**
+     * Rough bytes held by live chunks and row counts, not counting map overhead
+     */
+    public long getMemoryEstimate() {
+        return (long) chunks.size * (2 * CHUNK_CELLS + 16) + rowCounts.size * 8L;
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private final Pool<Chunk> chunkPool = new Pool<Chunk>() {
+        @Override
+        protected Chunk newObject() {
+            return new Chunk();
+        }
+    };
+
+    private final Array<Chunk>  dirtyChunks   = new Array<Chunk>();
+    private final IntArray      clearedRows   = new IntArray();
+    private final IntArray      clearedCols   = new IntArray();
+    private final IntArray      dirtyRows     = new IntArray();
+    private final IntIntMap     dirtyRowSet   = new IntIntMap();
+    private final IntIntMap     touchedRows   = new IntIntMap();
+    // Keyed by the first cell of each run already scored this cascade step,
+    // several cells in the dirty chunks can lie on the same run
+    private final IntIntMap     scoredRowRuns = new IntIntMap();
+    private final IntIntMap     scoredColRuns = new IntIntMap();
+    private final CascadeStats  cascadeStats  = new CascadeStats();
+
+    private int chunkKey(int row, int col) {
+        return (row >> CHUNK_SHIFT) * chunksWide + (col >> CHUNK_SHIFT);
+    }
+
+    private static int cellIndex(int row, int col) {
+        return ((row & CHUNK_MASK) << CHUNK_SHIFT) | (col & CHUNK_MASK);
+    }
+
+    // Type ordinal + 1 at a cell, 0 if empty or off the board
+    private int cellAt(int row, int col) {
+        if (row < 0 || row >= height || col < 0 || col >= width) {
+            return 0;
+        }
+        final Chunk chunk = chunks.get(chunkKey(row, col));
+        return (chunk == null) ? 0 : chunk.cells[cellIndex(row, col)];
+    }
+
+    /**
+     * Place a block in an empty cell and mark its chunk for the next match pass
+     */
+    private void put(int row, int col, int cell) {
+        final int key = chunkKey(row, col);
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = chunkPool.obtain();
+            chunk.key = key;
+            chunks.put(key, chunk);
+        }
+        chunk.cells[cellIndex(row, col)] = (byte) cell;
+        ++chunk.count;
+        ++numOccupied;
+        if (!chunk.dirty) {
+            chunk.dirty = true;
+            dirtyChunks.add(chunk);
+        }
+    }
+
+    /**
+     * Empty a cell, releasing its chunk once nothing is left in it.  Dirty
+     * chunks are released by the match pass instead, which still holds them.
+     */
+    private int take(int row, int col) {
+        final int   key   = chunkKey(row, col);
+        final Chunk chunk = chunks.get(key);
+        final int   index = cellIndex(row, col);
+        final int   cell  = chunk.cells[index];
+        chunk.cells[index]   = 0;
+        chunk.matched[index] = false;
+        --numOccupied;
+        if (--chunk.count == 0 && !chunk.dirty) {
+            chunks.remove(key);
+            chunkPool.free(chunk);
+        }
+        return cell;
+    }
+
+    private void resolve() {
+        final CascadeStats stats = cascadeStats;
+        while (dirtyChunks.size > 0) {
+            // Collect every run that passes through a block in a dirty chunk
+            for (int i = 0; i < dirtyChunks.size; ++i) {
+                final Chunk chunk = dirtyChunks.get(i);
+                chunk.dirty = false;
+                if (chunk.count == 0) {
+                    chunks.remove(chunk.key);
+                    chunkPool.free(chunk);
+                    continue;
+                }
+                final int baseRow = (chunk.key / chunksWide) << CHUNK_SHIFT;
+                final int baseCol = (chunk.key % chunksWide) << CHUNK_SHIFT;
+                for (int index = 0; index < CHUNK_CELLS; ++index) {
+                    if (chunk.cells[index] != 0) {
+                        collectRuns(baseRow + (index >> CHUNK_SHIFT), baseCol + (index & CHUNK_MASK));
+                    }
+                }
+            }
+            dirtyChunks.clear();
+            scoredRowRuns.clear();
+            scoredColRuns.clear();
+            if (clearedRows.size == 0) {
+                break;
+            }
+            ++stats.chainDepth;
+            stats.cellsCleared += clearedRows.size;
+
+            // Empty the matched cells, remembering each row's count before clearing
+            for (int i = 0; i < clearedRows.size; ++i) {
+                final int row = clearedRows.get(i);
+                take(row, clearedCols.get(i));
+                if (!dirtyRowSet.containsKey(row)) {
+                    dirtyRowSet.put(row, rowCounts.get(row, 0));
+                    dirtyRows.add(row);
+                }
+            }
+            clearedRows.clear();
+            clearedCols.clear();
+
+            // Pack each dirty row to the right, moved blocks dirty their chunks again
+            for (int i = 0; i < dirtyRows.size; ++i) {
+                final int row = dirtyRows.get(i);
+                touchedRows.put(row, 0);
+                compactRow(row, dirtyRowSet.get(row, 0));
+            }
+            dirtyRows.clear();
+            dirtyRowSet.clear();
+        }
+        stats.rowsTouched = touchedRows.size;
+        touchedRows.clear();
+    }
+
+    private void collectRuns(int row, int col) {
+        final int cell = cellAt(row, col);
+
+        // Walk left and right
+        int first = col;
+        int last  = col;
+        while (cellAt(row, first - 1) == cell) --first;
+        while (cellAt(row, last  + 1) == cell) ++last;
+        if (last - first + 1 >= RUN) {
+            final int start = row * width + first;
+            if (!scoredRowRuns.containsKey(start)) {
+                scoredRowRuns.put(start, 0);
+                cascadeStats.points += Score.getRunPoints(last - first + 1, cascadeStats.chainDepth + 1);
+            }
+            for (int c = first; c <= last; ++c) {
+                markMatched(row, c);
+            }
+        }
+
+        // Walk down and up
+        first = row;
+        last  = row;
+        while (cellAt(first - 1, col) == cell) --first;
+        while (cellAt(last  + 1, col) == cell) ++last;
+        if (last - first + 1 >= RUN) {
+            final int start = first * width + col;
+            if (!scoredColRuns.containsKey(start)) {
+                scoredColRuns.put(start, 0);
+                cascadeStats.points += Score.getRunPoints(last - first + 1, cascadeStats.chainDepth + 1);
+            }
+            for (int r = first; r <= last; ++r) {
+                markMatched(r, col);
+            }
+        }
+    }
+
+    private void markMatched(int row, int col) {
+        final Chunk chunk = chunks.get(chunkKey(row, col));
+        final int   index = cellIndex(row, col);
+        if (!chunk.matched[index]) {
+            chunk.matched[index] = true;
+            clearedRows.add(row);
+            clearedCols.add(col);
+        }
+    }
+
+    /**
+     * Rows are packed right, so before clearing the row's blocks were the
+     * right-most oldCount cells and nothing further left needs looking at
+     */
+    private void compactRow(int row, int oldCount) {
+        int target = width - 1;
+        for (int col = width - 1; col >= width - oldCount; --col) {
+            if (cellAt(row, col) == 0) {
+                continue;
+            }
+            if (col != target) {
+                put(row, target, take(row, col));
+            }
+            --target;
+        }
+        final int count = width - 1 - target;
+        if (count == 0) {
+            rowCounts.remove(row, 0);
+        } else {
+            rowCounts.put(row, count);
+        }
+    }
+
+}
@@ -1,23 +1,64 @@
 package lando.systems.prototype;
 
+import com.badlogic.gdx.Application.ApplicationType;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input.Keys;
 import com.badlogic.gdx.InputAdapter;
+import com.badlogic.gdx.InputMultiplexer;
+import com.badlogic.gdx.input.GestureDetector;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+import java.nio.ByteBuffer;
 
 /**
  * Brian Ploeckelman created on 1/16/2015.
  */
 public class Controller extends InputAdapter implements Disposable {
 
-    private final Model model;
-    private final View  view;
+    // Event times older than this are treated as coming from a different clock
+    private static final long MAX_EVENT_AGE_NANOS = 1000000000L;
+
+    private final Model         model;
+    private final View          view;
+    private final Simulation    simulation;
+    private final LaunchOptions options;
+    private final Profiler      profiler;
+
+    // Only set when the simulation runs on a worker thread, which records
+    // into simProfiler so it never shares histograms with the render thread
+    private AsyncExecutor     simExecutor;
+    private AsyncResult<Void> simResult;
+    private Profiler          simProfiler;
 
     public Controller(Model model, View view) {
-        this.model = model;
-        this.view  = view;
-        Gdx.input.setInputProcessor(this);
+        this(model, view, new LaunchOptions());
+    }
+
+    public Controller(Model model, View view, LaunchOptions options) {
+        this.model      = model;
+        this.view       = view;
+        this.simulation = new Simulation(model);
+        this.options    = options;
+        this.profiler   = new Profiler();
+
+        // Web builds run async tasks in place, so a worker thread would gain nothing
+        if (options.threadedSim && Gdx.app.getType() != ApplicationType.WebGL) {
+            simExecutor = new AsyncExecutor(1);
+            simProfiler = new Profiler();
+            model.setProfiler(simProfiler);
+        } else {
+            model.setProfiler(profiler);
+        }
+        if (options.profilePath != null) {
+            profiler.setCsvPath(options.profilePath);
+            profiler.setEnabled(true);
+        }
+        Gdx.input.setInputProcessor(new InputMultiplexer(this, new GestureDetector(gestures)));
     }
 
     // -------------------------------------------------------------------------
@@ -25,14 +66,65 @@ public class Controller extends InputAdapter implements Disposable {
     // -------------------------------------------------------------------------
 
     public void render() {
+        profiler.begin(Profiler.FRAME);
+
+        profiler.begin(Profiler.INPUT);
         processInput();
+        profiler.end(Profiler.INPUT);
+
+        // Step the model in fixed ticks so it behaves the same at any frame
+        // rate and the session can be replayed.  On a worker thread, a new
+        // advance only starts once the last one is done so a slow cascade
+        // delays the simulation instead of the frame.
+        simulation.addFrameTime(Gdx.graphics.getDeltaTime());
+        if (simExecutor == null) {
+            profiler.begin(Profiler.UPDATE);
+            simulation.handOff(TimeUtils.nanoTime());
+            simulation.call();
+            profiler.end(Profiler.UPDATE);
+        } else if (simResult == null || simResult.isDone()) {
+            // The worker is idle, so its timings, including UPDATE for the
+            // whole advance, can be taken and its switch flipped safely
+            profiler.drain(simProfiler);
+            simProfiler.setEnabled(profiler.isEnabled());
+            simulation.handOff(TimeUtils.nanoTime());
+            simResult = simExecutor.submit(simTask);
+        }
 
-        model.update(Gdx.graphics.getDeltaTime());
+        profiler.begin(Profiler.RENDER);
+        view.render(simulation.getSnapshots().acquire());
+        profiler.end(Profiler.RENDER);
 
-        view.render();
+        profiler.end(Profiler.FRAME);
+        profiler.endFrame(Gdx.graphics.getDeltaTime());
+    }
+
+    /**
+     * Wait for any running advance, then save the game to a local file
+     */
+    public void saveSnapshot(String path) {
+        if (simResult != null) {
+            simResult.get();
+        }
+        final int size = GameSnapshot.getSize(model);
+        if (snapshotBuffer == null || snapshotBuffer.capacity() < size) {
+            snapshotBuffer = ByteBuffer.allocate(size * 2);
+        }
+        snapshotBuffer.clear();
+        GameSnapshot.write(model, snapshotBuffer);
+        Gdx.files.local(path).writeBytes(snapshotBuffer.array(), 0, snapshotBuffer.position(), false);
     }
 
     public void dispose() {
+        if (simExecutor != null) {
+            if (simResult != null) {
+                simResult.get();
+            }
+            simExecutor.dispose();
+        }
+        if (options.recordPath != null) {
+            Gdx.files.local(options.recordPath).writeBytes(simulation.getRecorder().finish().encode(), false);
+        }
         model.dispose();
         view.dispose();
     }
@@ -41,24 +133,75 @@ public class Controller extends InputAdapter implements Disposable {
     // Private implementation
     // -------------------------------------------------------------------------
 
-    private Vector3 screenTouch = new Vector3();
-    private Vector3 worldTouch  = new Vector3();
+    private final AsyncTask<Void> simTask = new AsyncTask<Void>() {
+        @Override
+        public Void call() {
+            simProfiler.begin(Profiler.UPDATE);
+            simulation.call();
+            simProfiler.end(Profiler.UPDATE);
+            return null;
+        }
+    };
+
+    private final Vector3 worldTouch = new Vector3();
+    private ByteBuffer    snapshotBuffer;
+
+    // Every touch down is queued as a fling with the time it happened, rather
+    // than polled once a frame, so the simulation sees each one at its own tick
+    private final GestureDetector.GestureAdapter gestures = new GestureDetector.GestureAdapter() {
+        @Override
+        public boolean touchDown(float x, float y, int pointer, int button) {
+            view.camera.unproject(worldTouch.set(x, y, 0));
+            if (worldTouch.x < Layout.DROP_REGION_WIDTH) {
+                simulation.queueFling(worldTouch.x, worldTouch.y, getEventTime());
+            }
+            return false;
+        }
+    };
 
     private void processInput() {
         if (Gdx.input.isKeyJustPressed(Keys.ESCAPE)) {
             Gdx.app.exit();
         }
 
-        if (Gdx.input.justTouched()) {
-            screenTouch.set(Gdx.input.getX(), Gdx.input.getY(), 0);
-            worldTouch = view.camera.unproject(screenTouch);
-
-            if (screenTouch.x < View.DROP_REGION_WIDTH) {
-                model.handleFling(worldTouch.x, worldTouch.y);
+        // Toggle the performance overlay, profiling while it is shown
+        if (Gdx.input.isKeyJustPressed(Keys.F3)) {
+            if (view.getProfilerOverlay() == null) {
+                profiler.setEnabled(true);
+                view.setProfilerOverlay(profiler);
+            } else {
+                view.setProfilerOverlay(null);
+                profiler.setEnabled(options.profilePath != null);
             }
         }
 
+        // Toggle the bot: B lets it play, H only shows where it would fling
+        if (Gdx.input.isKeyJustPressed(Keys.B)) {
+            toggleBotMode(Simulation.BOT_AUTOPLAY);
+        }
+        if (Gdx.input.isKeyJustPressed(Keys.H)) {
+            toggleBotMode(Simulation.BOT_HINT);
+        }
+
         // handle other polled input here...
     }
 
+    /**
+     * Most backends stamp input events with TimeUtils.nanoTime(), but some
+     * desktop platforms use an OS clock, so fall back to now for stamps that
+     * can't be from the same clock as the hand off
+     */
+    private static long getEventTime() {
+        final long now  = TimeUtils.nanoTime();
+        final long time = Gdx.input.getCurrentEventTime();
+        if (time > now || now - time > MAX_EVENT_AGE_NANOS) {
+            return now;
+        }
+        return time;
+    }
+
+    private void toggleBotMode(int mode) {
+        simulation.setBotMode(simulation.getBotMode() == mode ? Simulation.BOT_OFF : mode);
+    }
+
 }
@@ -0,0 +1,211 @@
+package lando.systems.prototype;
+
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * Struct-of-arrays storage for blocks that are dropping from the queue.  A
+ * dropping block always follows the same path, falling at a constant speed
+ * while swinging around its lane center, so each one is stored as just its
+ * type, lane and spawn time.  Positions are evaluated in closed form when a
+ * block is drawn or hit-tested, and nothing is updated per block per frame.
+ *
+ * Every block leaves the screen a fixed time after it spawns, so blocks are
+ * indexed by spawn time.  The oldest band of that index holds the next blocks
+ * to leave, and a touch at some height maps to a narrow window of spawn times.
+ *
+ * Removal swaps the last block into the removed slot, so indices are only
+ * stable until the next removal.
+ */
+public class DroppingBlocks {
+
+    private static final BlockType[] TYPES = BlockType.values();
+
+    final float     spawnY;
+    final float     gravity;
+    final float     swingFrequency;
+    final float     swingAmplitude;
+    final float[]   laneCenterX;
+    final float     lifetime;
+    final BandIndex spawnIndex;
+
+    int      size;
+    double[] spawnTime;
+    byte[]   type;
+    byte[]   lane;
+
+    // Oldest spawn band that may still hold blocks
+    private int oldestBand;
+
+    /**
+     * @param spawnY         y coordinate of a block at its spawn time
+     * @param gravity        fall speed in units per second
+     * @param swingFrequency swing speed in radians per second
+     * @param swingAmplitude swing distance either side of the lane center
+     * @param laneCenterX    x coordinate of each lane's center
+     */
+    public DroppingBlocks(int capacity, float spawnY, float gravity,
+                          float swingFrequency, float swingAmplitude, float[] laneCenterX) {
+        capacity = Math.max(capacity, 1);
+        this.spawnY         = spawnY;
+        this.gravity        = gravity;
+        this.swingFrequency = swingFrequency;
+        this.swingAmplitude = swingAmplitude;
+        this.laneCenterX    = laneCenterX;
+        this.lifetime       = (spawnY + Block.SIZE) / gravity;
+
+        // A band of spawn times covers one block height of the fall, and the ring
+        // has more bands than there are spawn times in play so live bands never share a slot
+        final double bandSize = Block.SIZE / gravity;
+        spawnIndex = new BandIndex(bandSize, (int) Math.ceil(lifetime / bandSize) + 2, capacity);
+
+        spawnTime  = new double[capacity];
+        type       = new byte[capacity];
+        lane       = new byte[capacity];
+        size       = 0;
+        oldestBand = 0;
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    public int       size()               { return size; }
+    public BlockType getType(int i)       { return TYPES[type[i]]; }
+    public int       getLane(int i)       { return lane[i]; }
+    public double    getSpawnTime(int i)  { return spawnTime[i]; }
+    public double    getExitTime(int i)   { return spawnTime[i] + lifetime; }
+    public float     getLifetime()        { return lifetime; }
+    public BandIndex getSpawnIndex()      { return spawnIndex; }
+
+    /**
+     * Returns the x coordinate of block i at the given sim time.  MathUtils.sin
+     * is a table lookup, so this costs about the same as getY.
+     */
+    public float getX(int i, double time) {
+        final float t = (float) (time - spawnTime[i]);
+        return swingAmplitude * MathUtils.sin(swingFrequency * t) + laneCenterX[lane[i]];
+    }
+
+    /**
+     * Returns the y coordinate of block i at the given sim time
+     */
+    public float getY(int i, double time) {
+        return spawnY - gravity * (float) (time - spawnTime[i]);
+    }
+
+    /**
+     * Append a block that spawned at the given sim time and return its index
+     */
+    public int add(BlockType blockType, int blockLane, double blockSpawnTime) {
+        if (size == spawnTime.length) {
+            grow(size * 2);
+        }
+        final int i = size++;
+        spawnTime[i] = blockSpawnTime;
+        type[i]      = (byte) blockType.ordinal();
+        lane[i]      = (byte) blockLane;
+        spawnIndex.insert(i, blockSpawnTime);
+        oldestBand = Math.min(oldestBand, spawnIndex.getBand(blockSpawnTime));
+        return i;
+    }
+
+    public void remove(int i) {
+        spawnIndex.remove(i);
+        final int last = --size;
+        if (i != last) {
+            spawnTime[i] = spawnTime[last];
+            type[i]      = type[last];
+            lane[i]      = lane[last];
+            spawnIndex.move(last, i);
+        }
+    }
+
+    public void clear() {
+        size = 0;
+        spawnIndex.clear();
+    }
+
+    /**
+     * Returns the index of a block whose vertical extent contains touchY at
+     * the given sim time, or -1.  Only blocks that spawned inside the window
+     * of times that puts them at that height are checked.
+     */
+    public int find(float touchY, double time) {
+        final double latest   = time - (spawnY - touchY) / gravity;
+        final double earliest = latest - Block.SIZE / gravity;
+        if (latest < time - lifetime || earliest > time) {
+            return -1;
+        }
+        final int lastBand = spawnIndex.getBand(latest);
+        for (int b = spawnIndex.getBand(earliest); b <= lastBand; ++b) {
+            for (int i = spawnIndex.first(b); i != BandIndex.NONE; i = spawnIndex.next(i)) {
+                final float y = getY(i, time);
+                if (touchY >= y && touchY <= y + Block.SIZE) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Remove every block that is below the screen at the given sim time.
+     * Blocks leave in spawn order, so only the oldest bands are visited.
+     */
+    public void removeExited(double time) {
+        final double bandSize = spawnIndex.getBandSize();
+        while (true) {
+            int i = spawnIndex.first(oldestBand);
+            while (i != BandIndex.NONE) {
+                int next = spawnIndex.next(i);
+                if (getY(i, time) < -Block.SIZE) {
+                    // The last block is swapped into slot i, fix up next if that was it
+                    final int last = size - 1;
+                    remove(i);
+                    if (next == last) next = i;
+                }
+                i = next;
+            }
+
+            // Move on once this band is empty and can't receive any more spawns
+            if (spawnIndex.first(oldestBand) != BandIndex.NONE
+             || (oldestBand + 1) * bandSize > time) {
+                return;
+            }
+            ++oldestBand;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    /**
+     * Rebuild the spawn index as if every block had been added in spawn order
+     * and the store had been updated up to the given sim time, so blocks that
+     * were added in some other order are found and removed in the same order
+     * as they would have been
+     */
+    void reindex(double time) {
+        spawnIndex.clear();
+        oldestBand = spawnIndex.getBand(time);
+        for (int i = 0; i < size; ++i) {
+            // Each band lists its newest block first
+            final int band = spawnIndex.getBand(spawnTime[i]);
+            int after = BandIndex.NONE;
+            for (int j = spawnIndex.first(band); j != BandIndex.NONE && spawnTime[j] > spawnTime[i]; j = spawnIndex.next(j)) {
+                after = j;
+            }
+            spawnIndex.insertAfter(i, after, spawnTime[i]);
+            oldestBand = Math.min(oldestBand, band);
+        }
+    }
+
+    private void grow(int capacity) {
+        spawnTime = InPlayBlocks.copyOf(spawnTime, capacity);
+        type      = InPlayBlocks.copyOf(type, capacity);
+        lane      = InPlayBlocks.copyOf(lane, capacity);
+        spawnIndex.ensureCapacity(capacity);
+    }
+
+}
@@ -0,0 +1,222 @@
+package lando.systems.prototype;
+
+import aurelienribon.tweenengine.BaseTween;
+import aurelienribon.tweenengine.Tween;
+import aurelienribon.tweenengine.TweenCallback;
+import aurelienribon.tweenengine.TweenManager;
+import aurelienribon.tweenengine.equations.Back;
+import aurelienribon.tweenengine.equations.Quad;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+import lando.systems.prototype.accessors.ColorAccessor;
+import lando.systems.prototype.accessors.Vector2Accessor;
+
+/**
+ * Short-lived block animations for landings, bounces and clears, driven by
+ * the Model's TweenManager.  Each effect owns its position, scale and color,
+ * copied from BlockPalette when it starts, so the palette's colors are
+ * never tweened.
+ *
+ * Effects and the tweens that animate them both come from pools filled up
+ * front, so starting and finishing effects allocates nothing once running.
+ * At most MAX_EFFECTS play at once, past that new effects are skipped so a
+ * huge cascade costs a bounded amount per frame.
+ */
+public class Effects extends BlockFieldAdapter {
+
+    public static final int LAND   = 0;
+    public static final int BOUNCE = 1;
+    public static final int CLEAR  = 2;
+
+    public static final int MAX_EFFECTS = 512;
+
+    private static final float LAND_SECS        = 0.25f;
+    private static final float LAND_SCALE       = 1.25f;
+    private static final float BOUNCE_SECS      = 0.4f;
+    private static final float BOUNCE_DISTANCE  = Block.SIZE * 3;
+    private static final float CLEAR_SECS       = 0.3f;
+    private static final float CLEAR_CHAIN_SECS = 0.15f;
+
+    static class Effect implements Pool.Poolable {
+        final Vector2 position = new Vector2();
+        final Vector2 scale    = new Vector2(1, 1);
+        final Color   color    = new Color(1, 1, 1, 1);
+        int     kind;
+        boolean done;
+
+        @Override
+        public void reset() {
+            position.set(0, 0);
+            scale.set(1, 1);
+            color.set(1, 1, 1, 1);
+            done = false;
+        }
+    }
+
+    private final TweenManager  tweens;
+    private final BlockField    field;
+    private final Array<Effect> active = new Array<Effect>(false, MAX_EFFECTS);
+    private final Pool<Effect>  pool   = new Pool<Effect>(MAX_EFFECTS, MAX_EFFECTS) {
+        @Override
+        protected Effect newObject() {
+            return new Effect();
+        }
+    };
+
+    // Shared by every effect's final tween, the effect rides along as user data
+    private final TweenCallback finish = new TweenCallback() {
+        @Override
+        public void onEvent(int type, BaseTween<?> source) {
+            ((Effect) source.getUserData()).done = true;
+        }
+    };
+
+    private long skipped;
+
+    // Target color for landings, target() copies its values right away
+    private final Color landColor = new Color();
+
+    public Effects(TweenManager tweens, BlockField field) {
+        this.tweens = tweens;
+        this.field  = field;
+
+        // Fill the pools now rather than on the first big cascade
+        final Array<Effect> warm = new Array<Effect>(false, MAX_EFFECTS);
+        for (int i = 0; i < MAX_EFFECTS; ++i) {
+            warm.add(pool.obtain());
+        }
+        for (int i = 0; i < MAX_EFFECTS; ++i) {
+            pool.free(warm.get(i));
+        }
+
+        // Each effect runs two tweens, the tween pool is shared so only top it up
+        final int numTweens = 2 * MAX_EFFECTS - Tween.getPoolSize();
+        if (numTweens > 0) {
+            final Array<Tween> warmTweens = new Array<Tween>(false, numTweens);
+            for (int i = 0; i < numTweens; ++i) {
+                warmTweens.add(Tween.mark());
+            }
+            for (int i = 0; i < numTweens; ++i) {
+                warmTweens.get(i).free();
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    /**
+     * Release finished effects, call after the TweenManager has been updated
+     */
+    public void update() {
+        for (int i = active.size - 1; i >= 0; --i) {
+            final Effect effect = active.get(i);
+            if (effect.done) {
+                active.removeIndex(i);
+                pool.free(effect);
+            }
+        }
+    }
+
+    public int   size()              { return active.size; }
+    public int   getKind(int i)      { return active.get(i).kind; }
+    public float getX(int i)         { return active.get(i).position.x; }
+    public float getY(int i)         { return active.get(i).position.y; }
+    public float getScaleX(int i)    { return active.get(i).scale.x; }
+    public float getScaleY(int i)    { return active.get(i).scale.y; }
+    public Color getColor(int i)     { return active.get(i).color; }
+
+    /**
+     * Returns how many effects were not started because MAX_EFFECTS were already playing
+     */
+    public long getSkipped() { return skipped; }
+
+    /**
+     * A flung block hit a full row and is knocked back out of the field
+     */
+    public void bounced(BlockType type, float x, float y) {
+        final Effect effect = start(BOUNCE, type, x, y);
+        if (effect == null) {
+            return;
+        }
+        Tween.to(effect.position, Vector2Accessor.X, BOUNCE_SECS)
+             .target(x - BOUNCE_DISTANCE)
+             .ease(Quad.OUT)
+             .start(tweens);
+        finish(Tween.to(effect.color, ColorAccessor.A, BOUNCE_SECS)
+                    .target(0), effect);
+    }
+
+    @Override
+    public void landed(int row, int col, BlockType type) {
+        // Flash white and pop, then settle into the block's own color
+        final Effect effect = start(LAND, type, getCellX(col), field.getRowY(row));
+        if (effect == null) {
+            return;
+        }
+        effect.color.set(1, 1, 1, 1);
+        effect.scale.set(LAND_SCALE, LAND_SCALE);
+        Tween.to(effect.scale, Vector2Accessor.XY, LAND_SECS)
+             .target(1, 1)
+             .ease(Back.OUT)
+             .start(tweens);
+        final Color color = BlockPalette.copyColor(type, landColor);
+        finish(Tween.to(effect.color, ColorAccessor.RGB, LAND_SECS)
+                    .target(color.r, color.g, color.b), effect);
+    }
+
+    @Override
+    public void matched(int[] cells, int numCells, int chainDepth) {
+        // The cells still hold their types here, cleared() comes after they are emptied
+        final Block[][] blocks = field.getBlocks();
+        final float delay = (chainDepth - 1) * CLEAR_CHAIN_SECS;
+        for (int i = 0; i < numCells; ++i) {
+            final int row = cells[i] / BlockField.FIELD_WIDTH;
+            final int col = cells[i] % BlockField.FIELD_WIDTH;
+            final Effect effect = start(CLEAR, blocks[row][col].type, getCellX(col), field.getRowY(row));
+            if (effect == null) {
+                return;
+            }
+            Tween.to(effect.scale, Vector2Accessor.XY, CLEAR_SECS)
+                 .target(0, 0)
+                 .ease(Quad.IN)
+                 .delay(delay)
+                 .start(tweens);
+            finish(Tween.to(effect.color, ColorAccessor.A, CLEAR_SECS)
+                        .target(0)
+                        .delay(delay), effect);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private Effect start(int kind, BlockType type, float x, float y) {
+        if (active.size >= MAX_EFFECTS) {
+            ++skipped;
+            return null;
+        }
+        final Effect effect = pool.obtain();
+        effect.kind = kind;
+        effect.position.set(x, y);
+        BlockPalette.copyColor(type, effect.color);
+        active.add(effect);
+        return effect;
+    }
+
+    private void finish(Tween tween, Effect effect) {
+        tween.setUserData(effect)
+             .setCallback(finish)
+             .setCallbackTriggers(TweenCallback.COMPLETE)
+             .start(tweens);
+    }
+
+    private static float getCellX(int col) {
+        return BlockField.FIELD_START_X + col * Block.SIZE;
+    }
+
+}
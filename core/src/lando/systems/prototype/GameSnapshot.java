@@ -0,0 +1,277 @@
+package lando.systems.prototype;
+
+import lando.systems.prototype.Block.State;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary save state for a Model and its BlockField, written to and read
+ * from a caller supplied ByteBuffer, so a checkpoint allocates nothing once
+ * the buffer is big enough.  Restoring into a Model created with the same
+ * lane count and drop delay continues the game exactly where it was saved,
+ * including the block type sequence.  The model's config is left alone, a
+ * Recorder started on the restored model embeds the snapshot instead.
+ *
+ * Dropping blocks follow a fixed path from their spawn time, so a spawn time
+ * and lane is all they need.  They are saved in index order and their spawn
+ * index is rebuilt in spawn order, so touches and exits pick blocks in the
+ * same order after a restore.  Animations are not saved.
+ *
+ * Binary layout, big endian:
+ *   int    magic 'FSNP', int version
+ *   long   seed, float dropDelay, int numLanes
+ *   long   random state 0, long random state 1
+ *   double time, float lastDeltaTime, float dropAccum, int nextLane
+ *   byte   queue size, then queue size block type ordinals from the front
+ *   int    numDropping, numDropping * (double spawnTime, byte type, byte lane)
+ *   int    numFlinging, numFlinging * (float x, float prevX, float y, float velocityX, byte type, byte row)
+ *   byte   FIELD_HEIGHT * FIELD_WIDTH / 2, two block type ordinals per byte, low nibble first
+ *   long   score points, runs, horizontalRuns, verticalRuns, int longestRun, int maxMultiplier,
+ *          MAX_RUN_LENGTH + 1 * long runLengthCounts
+ *   long   blocksDropped, blocksLanded, blocksBounced, cellsCleared, points, int maxChainDepth,
+ *          MAX_TRACKED_CHAIN + 1 * long chainCounts
+ */
+public class GameSnapshot {
+
+    public static final int MAGIC   = 0x46534E50;
+    public static final int VERSION = 1;
+
+    private static final int         NUM_CELLS     = BlockField.FIELD_WIDTH * BlockField.FIELD_HEIGHT;
+    private static final int         FIELD_SIZE    = (NUM_CELLS + 1) / 2;
+    private static final int         DROPPING_SIZE = 8 + 1 + 1;
+    private static final int         FLINGING_SIZE = 4 * 4 + 1 + 1;
+    private static final int         SCORE_SIZE    = 4 * 8 + 4 + 4 + (Score.MAX_RUN_LENGTH + 1) * 8;
+    private static final int         STATS_SIZE    = 5 * 8 + 4 + (GameStats.MAX_TRACKED_CHAIN + 1) * 8;
+    private static final int         HEADER_SIZE   = 4 + 4 + 8 + 4 + 4 + 8 + 8 + 8 + 4 + 4 + 4;
+    private static final BlockType[] TYPES         = BlockType.values();
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the number of bytes write() will put for the model as it is now
+     */
+    public static int getSize(Model model) {
+        return HEADER_SIZE
+             + 1 + model.blockQueue.size()
+             + 4 + model.droppingBlocks.size * DROPPING_SIZE
+             + 4 + model.flingingBlocks.size * FLINGING_SIZE
+             + FIELD_SIZE + SCORE_SIZE + STATS_SIZE;
+    }
+
+    /**
+     * Put the model's state at the buffer's position, which must have getSize(model) bytes remaining
+     */
+    public static void write(Model model, ByteBuffer buffer) {
+        final ModelConfig config = model.config;
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(config.seed);
+        buffer.putFloat(config.dropDelay);
+        buffer.putInt(config.numLanes);
+        buffer.putLong(model.random.getState(0));
+        buffer.putLong(model.random.getState(1));
+        buffer.putDouble(model.time);
+        buffer.putFloat(model.lastDeltaTime);
+        buffer.putFloat(model.dropAccum);
+        buffer.putInt(model.nextLane);
+
+        final BlockQueue queue = model.blockQueue;
+        buffer.put((byte) queue.size());
+        for (int i = 0; i < queue.size(); ++i) {
+            buffer.put((byte) queue.get(i).ordinal());
+        }
+
+        final DroppingBlocks dropping = model.droppingBlocks;
+        buffer.putInt(dropping.size);
+        for (int i = 0; i < dropping.size; ++i) {
+            buffer.putDouble(dropping.spawnTime[i]);
+            buffer.put(dropping.type[i]);
+            buffer.put(dropping.lane[i]);
+        }
+
+        final InPlayBlocks flinging = model.flingingBlocks;
+        buffer.putInt(flinging.size);
+        for (int i = 0; i < flinging.size; ++i) {
+            buffer.putFloat(flinging.x[i]);
+            buffer.putFloat(flinging.prevX[i]);
+            buffer.putFloat(flinging.y[i]);
+            buffer.putFloat(flinging.velocityX[i]);
+            buffer.put(flinging.type[i]);
+            buffer.put((byte) flinging.row[i]);
+        }
+
+        writeField(model.blockField, buffer);
+        writeScore(model.blockField.getScore(), buffer);
+        writeStats(model.stats, buffer);
+    }
+
+    /**
+     * Replace the model's state with the snapshot at the buffer's position
+     * @throws IllegalArgumentException if the buffer doesn't hold a snapshot
+     *         for a model with the same lane count and drop delay
+     */
+    public static void read(ByteBuffer buffer, Model model) {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a game snapshot");
+        }
+        final int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported game snapshot version '" + version + "'");
+        }
+        // The seed is only kept to identify the game, the random state carries on from below
+        buffer.getLong();
+        final float dropDelay = buffer.getFloat();
+        final int   numLanes  = buffer.getInt();
+        if (numLanes != model.config.numLanes || dropDelay != model.config.dropDelay) {
+            throw new IllegalArgumentException("Game snapshot is for " + numLanes + " lanes with a "
+                                             + dropDelay + " sec drop delay, the model has "
+                                             + model.config.numLanes + " lanes with a "
+                                             + model.config.dropDelay + " sec drop delay");
+        }
+        final long state0 = buffer.getLong();
+        model.random.setState(state0, buffer.getLong());
+        model.time          = buffer.getDouble();
+        model.lastDeltaTime = buffer.getFloat();
+        model.dropAccum     = buffer.getFloat();
+        model.nextLane      = buffer.getInt();
+
+        final BlockQueue queue = model.blockQueue;
+        final int queueSize = buffer.get();
+        if (queueSize != queue.size()) {
+            throw new IllegalArgumentException("Game snapshot queue holds " + queueSize
+                                             + " blocks, the model's holds " + queue.size());
+        }
+        for (int i = 0; i < queueSize; ++i) {
+            queue.set(i, TYPES[buffer.get()]);
+        }
+
+        final DroppingBlocks dropping = model.droppingBlocks;
+        dropping.clear();
+        final int numDropping = buffer.getInt();
+        for (int i = 0; i < numDropping; ++i) {
+            final double spawnTime = buffer.getDouble();
+            final byte   type      = buffer.get();
+            dropping.add(TYPES[type], buffer.get(), spawnTime);
+        }
+        dropping.reindex(model.time);
+
+        final InPlayBlocks flinging = model.flingingBlocks;
+        flinging.clear();
+        final int numFlinging = buffer.getInt();
+        for (int i = 0; i < numFlinging; ++i) {
+            final float x     = buffer.getFloat();
+            final float prevX = buffer.getFloat();
+            final float y     = buffer.getFloat();
+            final int   block = flinging.add(BlockType.EMPTY, x, y);
+            flinging.prevX[block]     = prevX;
+            flinging.velocityX[block] = buffer.getFloat();
+            flinging.type[block]      = buffer.get();
+            flinging.row[block]       = buffer.get();
+        }
+
+        readField(buffer, model.blockField);
+        readScore(buffer, model.blockField.getScore());
+        readStats(buffer, model.stats);
+    }
+
+    /**
+     * Returns a new array holding a snapshot of the model
+     */
+    public static byte[] save(Model model) {
+        final ByteBuffer buffer = ByteBuffer.allocate(getSize(model));
+        write(model, buffer);
+        return buffer.array();
+    }
+
+    public static void load(byte[] bytes, Model model) {
+        read(ByteBuffer.wrap(bytes), model);
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private static void writeField(BlockField field, ByteBuffer buffer) {
+        final Block[][] blocks = field.getBlocks();
+        int packed = 0;
+        for (int cell = 0; cell < NUM_CELLS; ++cell) {
+            final int type = blocks[cell / BlockField.FIELD_WIDTH][cell % BlockField.FIELD_WIDTH].type.ordinal();
+            if ((cell & 1) == 0) {
+                packed = type;
+            } else {
+                buffer.put((byte) (packed | (type << 4)));
+            }
+        }
+        if ((NUM_CELLS & 1) != 0) {
+            buffer.put((byte) packed);
+        }
+    }
+
+    private static void readField(ByteBuffer buffer, BlockField field) {
+        final Block[][] blocks = field.getBlocks();
+        int packed = 0;
+        for (int cell = 0; cell < NUM_CELLS; ++cell) {
+            if ((cell & 1) == 0) {
+                packed = buffer.get();
+            }
+            final Block block = blocks[cell / BlockField.FIELD_WIDTH][cell % BlockField.FIELD_WIDTH];
+            block.type    = TYPES[(packed >> ((cell & 1) << 2)) & 0xF];
+            block.matched = false;
+            if (block.type != BlockType.EMPTY) {
+                block.state = State.LANDED;
+            }
+        }
+        field.markDirty();
+    }
+
+    private static void writeScore(Score score, ByteBuffer buffer) {
+        buffer.putLong(score.points);
+        buffer.putLong(score.runs);
+        buffer.putLong(score.horizontalRuns);
+        buffer.putLong(score.verticalRuns);
+        buffer.putInt(score.longestRun);
+        buffer.putInt(score.maxMultiplier);
+        for (int i = 0; i <= Score.MAX_RUN_LENGTH; ++i) {
+            buffer.putLong(score.runLengthCounts[i]);
+        }
+    }
+
+    private static void readScore(ByteBuffer buffer, Score score) {
+        score.points         = buffer.getLong();
+        score.runs           = buffer.getLong();
+        score.horizontalRuns = buffer.getLong();
+        score.verticalRuns   = buffer.getLong();
+        score.longestRun     = buffer.getInt();
+        score.maxMultiplier  = buffer.getInt();
+        for (int i = 0; i <= Score.MAX_RUN_LENGTH; ++i) {
+            score.runLengthCounts[i] = buffer.getLong();
+        }
+    }
+
+    private static void writeStats(GameStats stats, ByteBuffer buffer) {
+        buffer.putLong(stats.blocksDropped);
+        buffer.putLong(stats.blocksLanded);
+        buffer.putLong(stats.blocksBounced);
+        buffer.putLong(stats.cellsCleared);
+        buffer.putLong(stats.points);
+        buffer.putInt(stats.maxChainDepth);
+        for (int i = 0; i <= GameStats.MAX_TRACKED_CHAIN; ++i) {
+            buffer.putLong(stats.chainCounts[i]);
+        }
+    }
+
+    private static void readStats(ByteBuffer buffer, GameStats stats) {
+        stats.blocksDropped = buffer.getLong();
+        stats.blocksLanded  = buffer.getLong();
+        stats.blocksBounced = buffer.getLong();
+        stats.cellsCleared  = buffer.getLong();
+        stats.points        = buffer.getLong();
+        stats.maxChainDepth = buffer.getInt();
+        for (int i = 0; i <= GameStats.MAX_TRACKED_CHAIN; ++i) {
+            stats.chainCounts[i] = buffer.getLong();
+        }
+    }
+
+}
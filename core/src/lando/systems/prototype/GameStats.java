@@ -0,0 +1,74 @@
+package lando.systems.prototype;
+
+/**
+ * Running totals for one game, or for many games added together
+ */
+public class GameStats {
+
+    public static final int MAX_TRACKED_CHAIN = 16;
+
+    int   games;
+    long  blocksDropped;
+    long  blocksLanded;
+    long  blocksBounced;
+    long  cellsCleared;
+    int   maxChainDepth;
+    long  points;
+    final long[] chainCounts = new long[MAX_TRACKED_CHAIN + 1];
+
+    /**
+     * Empty totals, add games to them
+     */
+    public GameStats() {
+        this(0);
+    }
+
+    GameStats(int games) {
+        this.games = games;
+    }
+
+    public int  getGames()         { return games; }
+    public long getBlocksDropped() { return blocksDropped; }
+    public long getBlocksLanded()  { return blocksLanded; }
+    public long getBlocksBounced() { return blocksBounced; }
+    public long getCellsCleared()  { return cellsCleared; }
+    public int  getMaxChainDepth() { return maxChainDepth; }
+    public long getPoints()        { return points; }
+
+    /**
+     * Returns how many landings cascaded to the given depth, the last entry
+     * counts every landing at MAX_TRACKED_CHAIN or deeper
+     */
+    public long getChainCount(int chainDepth) {
+        return chainCounts[Math.min(chainDepth, MAX_TRACKED_CHAIN)];
+    }
+
+    public void add(GameStats other) {
+        games         += other.games;
+        blocksDropped += other.blocksDropped;
+        blocksLanded  += other.blocksLanded;
+        blocksBounced += other.blocksBounced;
+        cellsCleared  += other.cellsCleared;
+        maxChainDepth  = Math.max(maxChainDepth, other.maxChainDepth);
+        points        += other.points;
+        for (int i = 0; i <= MAX_TRACKED_CHAIN; ++i) {
+            chainCounts[i] += other.chainCounts[i];
+        }
+    }
+
+    void recordLanding(CascadeStats cascade) {
+        ++blocksLanded;
+        cellsCleared += cascade.cellsCleared;
+        points       += cascade.points;
+        maxChainDepth = Math.max(maxChainDepth, cascade.chainDepth);
+        ++chainCounts[Math.min(cascade.chainDepth, MAX_TRACKED_CHAIN)];
+    }
+
+    @Override
+    public String toString() {
+        return "games " + games + ", dropped " + blocksDropped + ", landed " + blocksLanded
+             + ", bounced " + blocksBounced + ", cleared " + cellsCleared + ", max chain " + maxChainDepth
+             + ", points " + points;
+    }
+
+}
@@ -0,0 +1,100 @@
+package lando.systems.prototype;
+
+/**
+ * Fixed-size histogram of nanosecond timings.  Buckets are log-linear, four
+ * per power of two, so each is at most 25% of its lower bound wide.
+ * Percentiles report the bucket's upper bound, so they never read low and
+ * read at most 25% high, from 1 ns up to centuries, without allocating or
+ * sorting samples.
+ */
+public class Histogram {
+
+    private static final int SUB_BITS    = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int NUM_BUCKETS = (64 - SUB_BITS + 1) << SUB_BITS;
+
+    private final long[] counts = new long[NUM_BUCKETS];
+    private long count;
+    private long total;
+    private long max;
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        ++counts[getBucket(nanos)];
+        ++count;
+        total += nanos;
+        if (nanos > max) max = nanos;
+    }
+
+    /**
+     * Add every value recorded by another histogram to this one
+     */
+    public void add(Histogram other) {
+        for (int i = 0; i < NUM_BUCKETS; ++i) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        if (other.max > max) max = other.max;
+    }
+
+    public void reset() {
+        for (int i = 0; i < NUM_BUCKETS; ++i) {
+            counts[i] = 0;
+        }
+        count = 0;
+        total = 0;
+        max   = 0;
+    }
+
+    public long getCount() { return count; }
+    public long getMax()   { return max; }
+    public long getMean()  { return (count == 0) ? 0 : total / count; }
+
+    /**
+     * Returns the upper bound of the bucket holding the given percentile (0 - 1),
+     * capped at the largest value recorded
+     */
+    public long getPercentile(float percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        final long target = Math.max(1, (long) Math.ceil(percentile * count));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; ++i) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(getBucketMax(i), max);
+            }
+        }
+        return max;
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private static int getBucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int msb = 63 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (msb - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return ((msb - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    private static long getBucketMax(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int msb = (bucket >> SUB_BITS) + SUB_BITS - 1;
+        final long sub = bucket & (SUB_BUCKETS - 1);
+        final long min = (1L << msb) | (sub << (msb - SUB_BITS));
+        return min + (1L << (msb - SUB_BITS)) - 1;
+    }
+
+}
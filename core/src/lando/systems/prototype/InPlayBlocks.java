@@ -0,0 +1,117 @@
+package lando.systems.prototype;
+
+/**
+ * Struct-of-arrays storage for blocks that are flinging toward the field.
+ * Each attribute lives in its own primitive array so the Model can update
+ * every block in a single pass over contiguous memory.  Dropping blocks
+ * follow a fixed path and live in DroppingBlocks instead.
+ *
+ * Removal swaps the last block into the removed slot, so indices are only
+ * stable until the next removal.
+ */
+public class InPlayBlocks {
+
+    private static final BlockType[] TYPES = BlockType.values();
+
+    int     size;
+    float[] x;
+    float[] prevX;
+    float[] y;
+    float[] velocityX;
+    byte[]  type;
+    int[]   row;
+
+    public InPlayBlocks(int capacity) {
+        capacity  = Math.max(capacity, 1);
+        x         = new float[capacity];
+        prevX     = new float[capacity];
+        y         = new float[capacity];
+        velocityX = new float[capacity];
+        type      = new byte[capacity];
+        row       = new int[capacity];
+        size      = 0;
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    public int       size()              { return size; }
+    public float     getX(int i)         { return x[i]; }
+    public float     getPrevX(int i)     { return prevX[i]; }
+    public float     getY(int i)         { return y[i]; }
+    public float     getVelocityX(int i) { return velocityX[i]; }
+    public BlockType getType(int i)      { return TYPES[type[i]]; }
+    public int       getRow(int i)       { return row[i]; }
+
+    /**
+     * Append a block at rest and return its index
+     */
+    public int add(BlockType blockType, float bx, float by) {
+        if (size == x.length) {
+            grow(size * 2);
+        }
+        final int i = size++;
+        x[i]         = bx;
+        prevX[i]     = bx;
+        y[i]         = by;
+        velocityX[i] = 0;
+        type[i]      = (byte) blockType.ordinal();
+        row[i]       = -1;
+        return i;
+    }
+
+    public void remove(int i) {
+        final int last = --size;
+        if (i != last) {
+            x[i]         = x[last];
+            prevX[i]     = prevX[last];
+            y[i]         = y[last];
+            velocityX[i] = velocityX[last];
+            type[i]      = type[last];
+            row[i]       = row[last];
+        }
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private void grow(int capacity) {
+        x         = copyOf(x, capacity);
+        prevX     = copyOf(prevX, capacity);
+        y         = copyOf(y, capacity);
+        velocityX = copyOf(velocityX, capacity);
+        type      = copyOf(type, capacity);
+        row       = copyOf(row, capacity);
+    }
+
+    static float[] copyOf(float[] src, int capacity) {
+        final float[] dst = new float[capacity];
+        System.arraycopy(src, 0, dst, 0, src.length);
+        return dst;
+    }
+
+    static double[] copyOf(double[] src, int capacity) {
+        final double[] dst = new double[capacity];
+        System.arraycopy(src, 0, dst, 0, src.length);
+        return dst;
+    }
+
+    static byte[] copyOf(byte[] src, int capacity) {
+        final byte[] dst = new byte[capacity];
+        System.arraycopy(src, 0, dst, 0, src.length);
+        return dst;
+    }
+
+    static int[] copyOf(int[] src, int capacity) {
+        final int[] dst = new int[capacity];
+        System.arraycopy(src, 0, dst, 0, src.length);
+        return dst;
+    }
+
+}
@@ -0,0 +1,113 @@
+package lando.systems.prototype;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed size ring of timestamped flings, passed from input callbacks on the
+ * render thread to the simulation without locks.  Every touch gets its own
+ * entry, so touches that arrive in the same frame are never merged, and the
+ * simulation can apply each one at the tick it happened in.
+ *
+ * There is exactly one writer and one reader.  The writer fills the slot at
+ * the tail before publishing the new tail, the reader reads the slot at the
+ * head before publishing the new head, so neither ever touches a slot the
+ * other is using.  Times must not decrease, the reader only looks at the
+ * oldest entry.
+ */
+public class InputQueue {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /** Time for entries that should apply before the next tick, whenever that is */
+    public static final long NOW = Long.MIN_VALUE;
+
+    private final long[]  times;
+    private final float[] x;
+    private final float[] y;
+    private final int     mask;
+
+    private final AtomicInteger head = new AtomicInteger();
+    private final AtomicInteger tail = new AtomicInteger();
+
+    // Writer only
+    private long overflows;
+
+    public InputQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public InputQueue(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        times = new long[size];
+        x     = new float[size];
+        y     = new float[size];
+        mask  = size - 1;
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    /**
+     * Writer only: add a fling at the given world position and input clock time.
+     * Returns false if the queue is full, the fling is counted but not added.
+     */
+    public boolean push(long time, float worldX, float worldY) {
+        final int t = tail.get();
+        if (t - head.get() > mask) {
+            ++overflows;
+            return false;
+        }
+        final int i = t & mask;
+        times[i] = time;
+        x[i]     = worldX;
+        y[i]     = worldY;
+        tail.set(t + 1);
+        return true;
+    }
+
+    /**
+     * Writer only: returns how many flings were not added because the queue was full
+     */
+    public long getOverflows() {
+        return overflows;
+    }
+
+    public int size() {
+        return tail.get() - head.get();
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Reader only: returns true if the oldest fling happened at or before the given time
+     */
+    public boolean isDue(long time) {
+        final int h = head.get();
+        return h != tail.get() && times[h & mask] <= time;
+    }
+
+    /** Reader only: the oldest fling, only valid while the queue is not empty */
+    public long  peekTime() { return times[head.get() & mask]; }
+    public float peekX()    { return x[head.get() & mask]; }
+    public float peekY()    { return y[head.get() & mask]; }
+
+    /**
+     * Reader only: remove the oldest fling
+     */
+    public void pop() {
+        final int h = head.get();
+        if (h != tail.get()) {
+            head.set(h + 1);
+        }
+    }
+
+}
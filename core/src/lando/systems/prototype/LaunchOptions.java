@@ -0,0 +1,19 @@
+package lando.systems.prototype;
+
+/**
+ * Settings for how a session runs, as opposed to how the game plays
+ */
+public class LaunchOptions {
+
+    /** Local file to write the session recording to on exit, or null */
+    public String  recordPath   = null;
+    /** Local file to append frame timing summaries to, or null */
+    public String  profilePath  = null;
+    /** Step the model on a worker thread, ignored on backends without threads */
+    public boolean threadedSim  = false;
+    /** TimeUtils.millis() when the launcher started, to report startup time from, or 0 */
+    public long    launchMillis = 0;
+    /** Local file to save the game to on pause and resume it from on the next start, or null */
+    public String  snapshotPath = null;
+
+}
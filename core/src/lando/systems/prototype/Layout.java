@@ -0,0 +1,22 @@
+package lando.systems.prototype;
+
+/**
+ * Screen layout shared by the simulation and the View.  Kept free of any
+ * rendering dependencies so the Model can run without a graphics backend.
+ */
+public final class Layout {
+
+    public static final int   VIEW_WIDTH             = 800;
+    public static final int   VIEW_HEIGHT            = 480;
+    public static final float DROP_REGION_WIDTH      = VIEW_WIDTH / 3;
+    public static final float BLOCK_PADDING          = 8f;
+    public static final float BLOCK_QUEUE_MARGIN_TOP = 16;
+    public static final float BLOCK_QUEUE_POSITION_X = DROP_REGION_WIDTH / 2 -
+                                                       Block.SIZE / 2;
+    public static final float BLOCK_QUEUE_POSITION_Y = VIEW_HEIGHT -
+                                                       BLOCK_QUEUE_MARGIN_TOP -
+                                                       Block.SIZE;
+
+    private Layout() {}
+
+}
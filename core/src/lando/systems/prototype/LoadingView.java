@@ -0,0 +1,57 @@
+package lando.systems.prototype;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Progress bar shown while Assets load, it needs no textures of its own
+ */
+public class LoadingView implements Disposable {
+
+    private static final float BAR_WIDTH  = Layout.VIEW_WIDTH / 2;
+    private static final float BAR_HEIGHT = Block.SIZE / 2;
+    private static final float BAR_X      = (Layout.VIEW_WIDTH  - BAR_WIDTH)  / 2;
+    private static final float BAR_Y      = (Layout.VIEW_HEIGHT - BAR_HEIGHT) / 2;
+
+    private static final Color COLOR_TRACK = new Color(1, 1, 1, 0.25f);
+
+    ShapeRenderer      shapes;
+    OrthographicCamera camera;
+
+    public LoadingView() {
+        shapes = new ShapeRenderer();
+        camera = new OrthographicCamera();
+        camera.setToOrtho(false, Layout.VIEW_WIDTH, Layout.VIEW_HEIGHT);
+        camera.update();
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    /**
+     * @param progress how much has loaded, 0 - 1
+     */
+    public void render(float progress) {
+        Gdx.gl.glClearColor(0, 0, 0.2f, 1);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+
+        shapes.setProjectionMatrix(camera.combined);
+        shapes.begin(ShapeRenderer.ShapeType.Filled);
+        shapes.setColor(COLOR_TRACK);
+        shapes.rect(BAR_X, BAR_Y, BAR_WIDTH, BAR_HEIGHT);
+        shapes.setColor(Color.WHITE);
+        shapes.rect(BAR_X, BAR_Y, BAR_WIDTH * progress, BAR_HEIGHT);
+        shapes.end();
+    }
+
+    @Override
+    public void dispose() {
+        shapes.dispose();
+    }
+
+}
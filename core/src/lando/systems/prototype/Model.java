@@ -3,16 +3,12 @@ package lando.systems.prototype;
 import aurelienribon.tweenengine.Tween;
 import aurelienribon.tweenengine.TweenManager;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.RandomXS128;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Disposable;
-import lando.systems.prototype.Block.State;
 import lando.systems.prototype.accessors.ColorAccessor;
 import lando.systems.prototype.accessors.Vector2Accessor;
 
-import java.util.LinkedList;
-
 /**
  * Brian Ploeckelman created on 1/16/2015.
  */
@@ -20,68 +16,160 @@ public class Model implements Disposable {
 
     private static final int   QUEUE_SIZE      = 6;
     private static final float DROP_GRAVITY    = 64;
-    private static final float DROP_DELAY      = 1.25f;
     private static final float FLING_SPEED     = 512;
     private static final float SWING_FREQUENCY = 3;
-    private static final float SWING_AMPLITUDE = View.DROP_REGION_WIDTH / 2 -
+    private static final float SWING_AMPLITUDE = Layout.DROP_REGION_WIDTH / 2 -
                                                  Block.SIZE * 2;
-    private static final float SWING_CENTER_X  = View.BLOCK_QUEUE_POSITION_X;
 
-    TweenManager      tweens;
-    LinkedList<Block> blockQueue;
-    LinkedList<Block> blocksInPlay;
-    BlockField        blockField;
+    // Accessors are registered in a global table, so do it once rather than per Model
+    static {
+        Tween.registerAccessor(Color.class, new ColorAccessor());
+        Tween.registerAccessor(Vector2.class, new Vector2Accessor());
+    }
 
-    float dropAccum;
+    final ModelConfig config;
+    final float[]     laneCenterX;
+    final RandomXS128 random;
+
+    TweenManager   tweens;
+    BlockQueue     blockQueue;
+    DroppingBlocks droppingBlocks;
+    InPlayBlocks   flingingBlocks;
+    BlockField     blockField;
+    Effects        effects;
+    GameStats      stats;
+    Profiler       profiler;
+
+    double time;
+    float  lastDeltaTime;
+    float  dropAccum;
+    int    nextLane;
 
     public Model() {
-        tweens = new TweenManager();
-        Tween.registerAccessor(Color.class, new ColorAccessor());
-        Tween.registerAccessor(Vector2.class, new Vector2Accessor());
+        this(new ModelConfig());
+    }
 
-        Vector2 position = new Vector2();
+    /**
+     * @throws IllegalArgumentException if the config is out of range, see ModelConfig.validate
+     */
+    public Model(ModelConfig config) {
+        config.validate();
+        this.config = config;
+        this.random = new RandomXS128(config.seed);
+
+        tweens = new TweenManager();
+        stats  = new GameStats(1);
+        profiler = Profiler.NONE;
+
+        // Split the drop region into lanes, each with a narrower swing
+        final float laneWidth = Layout.DROP_REGION_WIDTH / config.numLanes;
+        laneCenterX = new float[config.numLanes];
+        for (int i = 0; i < config.numLanes; ++i) {
+            laneCenterX[i] = laneWidth * i + laneWidth / 2 - Block.SIZE / 2;
+        }
 
-        blockQueue = new LinkedList<Block>();
-        float bx = View.BLOCK_QUEUE_POSITION_X;
-        float by = View.BLOCK_QUEUE_POSITION_Y;
+        blockQueue = new BlockQueue(QUEUE_SIZE);
         for (int i = 0; i < QUEUE_SIZE; ++i) {
-            position.set(bx, by);
-            blockQueue.add(new Block(BlockType.getRandom(), position.cpy()));
-            bx += Block.SIZE + View.BLOCK_PADDING;
+            blockQueue.set(i, BlockType.getRandom(random));
         }
 
-        blocksInPlay = new LinkedList<Block>();
-        blockField   = new BlockField();
+        // Dropped blocks spawn just below the queue
+        droppingBlocks = new DroppingBlocks(config.inPlayCapacity,
+                                            blockQueue.getY() - Block.SIZE,
+                                            DROP_GRAVITY,
+                                            SWING_FREQUENCY,
+                                            SWING_AMPLITUDE / config.numLanes,
+                                            laneCenterX);
+        flingingBlocks = new InPlayBlocks(config.inPlayCapacity);
+        blockField     = new BlockField();
+        if (config.effects) {
+            effects = new Effects(tweens, blockField);
+            blockField.addListener(effects);
+        }
 
-        dropAccum  = DROP_DELAY;
+        time      = 0;
+        dropAccum = config.dropDelay;
+        nextLane  = 0;
     }
 
     public final TweenManager tween() {
         return tweens;
     }
 
-    public final LinkedList<Block> getBlockQueue() {
+    public final BlockQueue getBlockQueue() {
         return blockQueue;
     }
 
-    public final LinkedList<Block> getBlocksInPlay() {
-        return blocksInPlay;
+    public final DroppingBlocks getDroppingBlocks() {
+        return droppingBlocks;
+    }
+
+    public final InPlayBlocks getFlingingBlocks() {
+        return flingingBlocks;
+    }
+
+    public final int getNumBlocksInPlay() {
+        return droppingBlocks.size + flingingBlocks.size;
     }
 
     public final BlockField getBlockField() {
         return blockField;
     }
 
+    /**
+     * Returns the running animations, or null if the config turned them off
+     */
+    public final Effects getEffects() {
+        return effects;
+    }
+
+    public final GameStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the running score, read only
+     */
+    public final Score getScore() {
+        return blockField.getScore();
+    }
+
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+        blockField.setProfiler(profiler);
+    }
+
+    public final ModelConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Returns the sim time in seconds, which drives dropping block positions
+     */
+    public final double getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the sim time to draw at, a fraction alpha of the way from the
+     * previous update to the latest one
+     */
+    public final double getRenderTime(float alpha) {
+        return time - (1 - alpha) * lastDeltaTime;
+    }
+
     // -------------------------------------------------------------------------
     // Public interface
     // -------------------------------------------------------------------------
 
     public void update(float deltaTime) {
         tweens.update(deltaTime);
+        if (effects != null) {
+            effects.update();
+        }
         updateBlocks(deltaTime);
     }
 
-    // TODO(brian): add fling handling with a GestureDetector implementation in Controller
     public void handleFling(float worldTouchX, float worldTouchY) {
         flingBlock(worldTouchX, worldTouchY);
     }
@@ -93,99 +181,86 @@ public class Model implements Disposable {
     // Private implementation
     // -------------------------------------------------------------------------
 
-    private void updateBlocks(float deltaTime) {
+    void updateBlocks(float deltaTime) {
+        time += deltaTime;
+        lastDeltaTime = deltaTime;
+
+        // Each drop is stamped with the time it was due, not the end of the frame
+        profiler.begin(Profiler.DROP);
         dropAccum += deltaTime;
-        if (dropAccum >= DROP_DELAY) {
-            dropAccum -= DROP_DELAY;
-            dropBlock();
+        while (dropAccum >= config.dropDelay) {
+            dropAccum -= config.dropDelay;
+            dropBlock(time - dropAccum);
         }
+        profiler.end(Profiler.DROP);
 
-        // TODO(brian): change blocksInPlay to ArrayList since I'm accessing by index here?
-        Block block;
-        for (int i = blocksInPlay.size() - 1; i >= 0; --i) {
-            block = blocksInPlay.get(i);
-
-            // Handle dropping blocks
-            if (State.DROPPING.equals(block.state)) {
-                // If the block goes off screen, remove it
-                if (block.position.y < -Block.SIZE) {
-                    block.state = State.UNKNOWN;
-                    block.velocity.set(0, 0);
-                    blocksInPlay.remove(i);
-                } else {
-                    block.swingAccum += SWING_FREQUENCY * deltaTime;
-                    if (block.swingAccum >= MathUtils.PI2) {
-                        block.swingAccum = 0;
-                    }
-                    block.position.x = SWING_AMPLITUDE *
-                                       MathUtils.sin(block.swingAccum) +
-                                       SWING_CENTER_X;
-                    block.position.y -= DROP_GRAVITY * deltaTime;
-                }
-            }
+        profiler.begin(Profiler.EXITS);
+        droppingBlocks.removeExited(time);
+        profiler.end(Profiler.EXITS);
 
-            // Handle flinging blocks
-            else if (State.FLINGING.equals(block.state)) {
-                // Move the block
-                if (block.velocity.x != 0) {
-                    block.position.x += block.velocity.x * deltaTime;
-                }
+        profiler.begin(Profiler.FLINGING);
+        updateFlingingBlocks(deltaTime);
+        profiler.end(Profiler.FLINGING);
+    }
+
+    private void updateFlingingBlocks(float deltaTime) {
+        final InPlayBlocks blocks = flingingBlocks;
+        final float[] x         = blocks.x;
+        final float[] prevX     = blocks.prevX;
+        final float[] velocityX = blocks.velocityX;
+
+        // Move the blocks, keeping where they were for render interpolation
+        for (int i = 0; i < blocks.size; ++i) {
+            prevX[i] = x[i];
+            x[i] += velocityX[i] * deltaTime;
+        }
 
-                // If the block is on the field, check its row and land it if appropriate
-                if (block.position.x >= BlockField.FIELD_START_X - Block.SIZE) {
-                    if (blockField.isRowFull(block.rowIndex)) {
-                        // TODO(brian): animate bounce off of field
-                        blocksInPlay.remove(i);
-                    }
-                    else if (blockField.checkForLanding(block)) {
-                        // TODO(brian): animate landing
-                        blocksInPlay.remove(i);
-                    }
+        // If a block is on the field, check its row and land it if appropriate
+        for (int i = blocks.size - 1; i >= 0; --i) {
+            if (x[i] < BlockField.FIELD_START_X - Block.SIZE) {
+                continue;
+            }
+            if (blockField.isRowFull(blocks.row[i])) {
+                if (effects != null) {
+                    effects.bounced(blocks.getType(i), x[i], blocks.y[i]);
                 }
+                ++stats.blocksBounced;
+                blocks.remove(i);
+            }
+            else if (blockField.checkForLanding(blocks.getType(i), blocks.row[i], x[i])) {
+                stats.recordLanding(blockField.getCascadeStats());
+                blocks.remove(i);
             }
         }
     }
 
-    private void dropBlock() {
-        // Remove first block from queue and put it in play
-        Block dropBlock = blockQueue.removeFirst();
-        dropBlock.state = State.DROPPING;
-        dropBlock.position.y -= Block.SIZE;
-        blocksInPlay.add(dropBlock);
-
-        // Add new block to the end of the queue
-        Block newBlock = new Block(BlockType.getRandom(),
-                                   blockQueue.getLast().position.cpy(),
-                                   State.QUEUED);
-        newBlock.position.x += Block.SIZE + View.BLOCK_PADDING;
-        blockQueue.add(newBlock);
-
-        // Update queued block positions
-        for (Block block : blockQueue) {
-            block.position.x -= Block.SIZE + View.BLOCK_PADDING;
-        }
+    void dropBlock(double spawnTime) {
+        // Take the first type from the queue, refill the back of the queue
+        // and put the block in play just below the queue in the next lane
+        final int lane = nextLane;
+        nextLane = (nextLane + 1) % laneCenterX.length;
+        droppingBlocks.add(blockQueue.poll(BlockType.getRandom(random)), lane, spawnTime);
+        ++stats.blocksDropped;
     }
 
-    private Vector2   touch  = new Vector2();
-    private Rectangle bounds = new Rectangle(0, 0, View.DROP_REGION_WIDTH, Block.SIZE);
-    private void flingBlock(float worldTouchX, float worldTouchY) {
-        touch.set(worldTouchX, worldTouchY);
+    void flingBlock(float worldTouchX, float worldTouchY) {
+        if (worldTouchX < 0 || worldTouchX > Layout.DROP_REGION_WIDTH) {
+            return;
+        }
 
-        Block flung = null;
-        for (Block block : blocksInPlay) {
-            if (State.DROPPING.equals(block.state)) {
-                bounds.setY(block.position.y);
-                if (bounds.contains(touch)) {
-                    flung = block;
-                    break;
-                }
-            }
+        final int i = droppingBlocks.find(worldTouchY, time);
+        if (i < 0) {
+            return;
         }
 
-        if (flung != null) {
-            flung.state = State.FLINGING;
-            flung.velocity.x = FLING_SPEED;
-            blockField.clampToRow(flung, touch);
+        final int flung = flingingBlocks.add(droppingBlocks.getType(i),
+                                             droppingBlocks.getX(i, time),
+                                             droppingBlocks.getY(i, time));
+        droppingBlocks.remove(i);
+        flingingBlocks.velocityX[flung] = FLING_SPEED;
+        flingingBlocks.row[flung] = blockField.clampToRow(worldTouchY);
+        if (flingingBlocks.row[flung] >= 0) {
+            flingingBlocks.y[flung] = blockField.getRowY(flingingBlocks.row[flung]);
         }
     }
 
@@ -0,0 +1,53 @@
+package lando.systems.prototype;
+
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Gameplay settings for a Model
+ */
+public class ModelConfig {
+
+    public static final float DEFAULT_DROP_DELAY = 1.25f;
+    /** Lanes are stored in a byte per dropping block */
+    public static final int   MAX_LANES          = Byte.MAX_VALUE;
+
+    /** Seconds between drops, several blocks may drop in one update if this is shorter than a frame */
+    public float dropDelay      = DEFAULT_DROP_DELAY;
+    /** Number of side by side lanes that dropped blocks swing in, taking turns */
+    public int   numLanes       = 1;
+    /** Initial capacity of the in-play block stores, they grow as needed */
+    public int   inPlayCapacity = 16;
+    /** Seed for the block type sequence, games with the same seed and input play out the same */
+    public long  seed           = TimeUtils.millis();
+    /**
+     * Animate landings, bounces and clears.  Tween pools are global and not
+     * thread safe, so turn this off for models stepped on parallel threads.
+     */
+    public boolean effects      = true;
+
+    /**
+     * Stress mode with many simultaneous dropping blocks
+     */
+    public static ModelConfig blizzard(float dropDelay, int numLanes) {
+        final ModelConfig config = new ModelConfig();
+        config.dropDelay      = dropDelay;
+        config.numLanes       = numLanes;
+        config.inPlayCapacity = 4096;
+        config.validate();
+        return config;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the drop delay isn't positive or
+     *         the lane count isn't between 1 and MAX_LANES
+     */
+    public void validate() {
+        if (!(dropDelay > 0)) {
+            throw new IllegalArgumentException("Drop delay must be greater than 0, not " + dropDelay);
+        }
+        if (numLanes < 1 || numLanes > MAX_LANES) {
+            throw new IllegalArgumentException("Lane count " + numLanes + " out of range, 1 - " + MAX_LANES);
+        }
+    }
+
+}
@@ -0,0 +1,197 @@
+package lando.systems.prototype;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Records nanosecond timings for each phase of a frame into histograms.
+ * Histograms cover a rolling window of WINDOW_SECS, at the end of each window
+ * a summary row per phase is appended to a CSV file in local storage (if a
+ * path is set) and the histograms start over.
+ *
+ * A disabled profiler only costs a branch per begin/end, Profiler.NONE is
+ * a shared instance that can never be enabled for code that isn't profiled.
+ *
+ * A profiler belongs to one thread.  Code running on a worker records into
+ * a profiler of its own, which the owning thread drains while the worker
+ * is idle.
+ */
+public class Profiler {
+
+    public static final int FRAME        = 0;
+    public static final int INPUT        = 1;
+    public static final int UPDATE       = 2;
+    public static final int RENDER       = 3;
+    public static final int DROP         = 4;
+    public static final int EXITS        = 5;
+    public static final int FLINGING     = 6;
+    public static final int CASCADE      = 7;
+    public static final int COLLECT_RUNS = 8;
+    public static final int SHIFT_ROWS   = 9;
+    public static final int NUM_PHASES   = 10;
+
+    public static final String[] PHASE_NAMES = {
+        "frame", "input", "update", "render", "drop",
+        "exits", "flinging", "cascade", "collect runs", "shift rows"
+    };
+
+    public static final float WINDOW_SECS = 5;
+
+    public static final Profiler NONE = new Profiler(false);
+
+    private final Histogram[] histograms;
+    private final long[]      startTimes;
+    private boolean enabled;
+    private String  csvPath;
+    private boolean csvStarted;
+
+    // Rolling window, with heap growth as a stand-in for allocation
+    private float windowSecs;
+    private float totalSecs;
+    private long  lastHeap;
+    private long  windowAllocated;
+    private float allocationRate;
+
+    public Profiler() {
+        this(true);
+    }
+
+    private Profiler(boolean canEnable) {
+        histograms = canEnable ? new Histogram[NUM_PHASES] : null;
+        startTimes = canEnable ? new long[NUM_PHASES] : null;
+        if (canEnable) {
+            for (int i = 0; i < NUM_PHASES; ++i) {
+                histograms[i] = new Histogram();
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled && (histograms != null);
+    }
+
+    /**
+     * Append a summary row per phase to this local file at the end of each window
+     */
+    public void setCsvPath(String csvPath) {
+        this.csvPath    = csvPath;
+        this.csvStarted = false;
+    }
+
+    public void begin(int phase) {
+        if (!enabled) return;
+        startTimes[phase] = TimeUtils.nanoTime();
+    }
+
+    public void end(int phase) {
+        if (!enabled) return;
+        histograms[phase].record(TimeUtils.nanoTime() - startTimes[phase]);
+    }
+
+    /**
+     * Call once per frame, after the FRAME phase has ended
+     */
+    public void endFrame(float deltaTime) {
+        if (!enabled) return;
+
+        if (Gdx.app != null) {
+            final long heap = Gdx.app.getJavaHeap();
+            if (heap > lastHeap && lastHeap != 0) {
+                windowAllocated += heap - lastHeap;
+            }
+            lastHeap = heap;
+        }
+
+        windowSecs += deltaTime;
+        totalSecs  += deltaTime;
+        if (windowSecs >= WINDOW_SECS) {
+            allocationRate = windowAllocated / windowSecs;
+            if (csvPath != null) {
+                writeCsv();
+            }
+            for (int i = 0; i < NUM_PHASES; ++i) {
+                histograms[i].reset();
+            }
+            windowSecs      = 0;
+            windowAllocated = 0;
+        }
+    }
+
+    /**
+     * Move the timings another profiler recorded into this one, and clear
+     * them there.  The other profiler's thread must not be recording.
+     */
+    public void drain(Profiler other) {
+        if (histograms == null || other.histograms == null) return;
+        for (int i = 0; i < NUM_PHASES; ++i) {
+            if (other.histograms[i].getCount() > 0) {
+                histograms[i].add(other.histograms[i]);
+                other.histograms[i].reset();
+            }
+        }
+    }
+
+    public Histogram getHistogram(int phase) {
+        return histograms[phase];
+    }
+
+    /**
+     * Returns the bytes allocated per second over the last complete window.
+     * Measured as growth of the java heap, so only meaningful between collections.
+     */
+    public float getAllocationRate() {
+        return allocationRate;
+    }
+
+    /**
+     * Append a phase's p50 / p99 / max in milliseconds, without allocating
+     */
+    public StringBuilder appendSummary(StringBuilder text, int phase) {
+        final Histogram histogram = histograms[phase];
+        text.append(PHASE_NAMES[phase]).append(": ");
+        appendMillis(text, histogram.getPercentile(0.5f)).append(" / ");
+        appendMillis(text, histogram.getPercentile(0.99f)).append(" / ");
+        return appendMillis(text, histogram.getMax()).append(" ms");
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private final StringBuilder csv = new StringBuilder();
+
+    private void writeCsv() {
+        csv.setLength(0);
+        if (!csvStarted) {
+            csv.append("time_secs,phase,count,p50_us,p99_us,max_us,alloc_bytes_per_sec\n");
+        }
+        for (int i = 0; i < NUM_PHASES; ++i) {
+            final Histogram histogram = histograms[i];
+            csv.append((long) totalSecs).append(',')
+               .append(PHASE_NAMES[i]).append(',')
+               .append(histogram.getCount()).append(',')
+               .append(histogram.getPercentile(0.5f) / 1000).append(',')
+               .append(histogram.getPercentile(0.99f) / 1000).append(',')
+               .append(histogram.getMax() / 1000).append(',')
+               .append((long) allocationRate).append('\n');
+        }
+        Gdx.files.local(csvPath).writeString(csv.toString(), csvStarted);
+        csvStarted = true;
+    }
+
+    private static StringBuilder appendMillis(StringBuilder text, long nanos) {
+        final long hundredths = nanos / 10000;
+        text.append(hundredths / 100).append('.');
+        if (hundredths % 100 < 10) text.append('0');
+        return text.append(hundredths % 100);
+    }
+
+}
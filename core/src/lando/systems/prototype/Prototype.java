@@ -1,26 +1,127 @@
 package lando.systems.prototype;
 
 import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.TimeUtils;
 
 public class Prototype extends ApplicationAdapter {
 
-	Controller controller;
+	final ModelConfig   config;
+	final LaunchOptions options;
+
+	Controller  controller;
+	Assets      assets;
+	LoadingView loadingView;
+
+	// Startup milestones from TimeUtils.millis(), for the startup report
+	long createMillis;
+	long loadedMillis;
+	boolean startupReported;
+
+	public Prototype() {
+		this(new ModelConfig());
+	}
+
+	public Prototype(ModelConfig config) {
+		this(config, new LaunchOptions());
+	}
+
+	public Prototype(ModelConfig config, LaunchOptions options) {
+		this.config  = config;
+		this.options = options;
+	}
 
 	@Override
 	public void create() {
-		Model model = new Model();
-		View  view  = new View(model);
-		controller = new Controller(model, view);
+		// Art loads over the first frames behind a progress bar instead of blocking here
+		createMillis = TimeUtils.millis();
+		assets      = new Assets();
+		loadingView = new LoadingView();
 	}
 
 	@Override
 	public void render() {
+		if (controller == null) {
+			if (!assets.update()) {
+				loadingView.render(assets.getProgress());
+				return;
+			}
+			startGame();
+		}
+
 		controller.render();
+		if (!startupReported) {
+			reportStartup();
+		}
+	}
+
+	@Override
+	public void pause() {
+		// Android may end the process any time after pausing, so save the game to resume on the next start
+		if (controller != null && options.snapshotPath != null) {
+			controller.saveSnapshot(options.snapshotPath);
+		}
 	}
 
 	@Override
 	public void dispose() {
-		controller.dispose();
+		if (controller != null) {
+			controller.dispose();
+		}
+		if (loadingView != null) {
+			loadingView.dispose();
+		}
+		assets.dispose();
+	}
+
+	// -------------------------------------------------------------------------
+	// Private implementation
+	// -------------------------------------------------------------------------
+
+	private void startGame() {
+		loadedMillis = TimeUtils.millis();
+		loadingView.dispose();
+		loadingView = null;
+
+		Model model = new Model(config);
+		if (options.snapshotPath != null && !restoreSnapshot(model)) {
+			model = new Model(config);
+		}
+		View  view  = new View(assets);
+		controller = new Controller(model, view, options);
+	}
+
+	/**
+	 * Returns false if a saved game was found but could not be restored,
+	 * in which case the model may be partly restored and should be replaced
+	 */
+	private boolean restoreSnapshot(Model model) {
+		final FileHandle file = Gdx.files.local(options.snapshotPath);
+		if (!file.exists()) {
+			return true;
+		}
+		try {
+			GameSnapshot.load(file.readBytes(), model);
+			Gdx.app.log("Snapshot", "Resumed from " + file.path());
+			return true;
+		} catch (RuntimeException e) {
+			Gdx.app.error("Snapshot", "Unable to resume from " + file.path() + ", starting a new game", e);
+			return false;
+		}
+	}
+
+	private void reportStartup() {
+		final long now = TimeUtils.millis();
+		final StringBuilder report = new StringBuilder();
+		if (options.launchMillis > 0) {
+			report.append("launch to create ").append(createMillis - options.launchMillis).append(" ms, ");
+		}
+		report.append("assets ").append(loadedMillis - createMillis).append(" ms")
+		      .append(assets.isPacked() ? " (atlas)" : " (unpacked spritesheet)")
+		      .append(", first frame ").append(now - createMillis).append(" ms after create");
+		Gdx.app.log("Startup", report.toString());
+		startupReported = true;
 	}
 
 }
@@ -0,0 +1,163 @@
+package lando.systems.prototype;
+
+/**
+ * Everything the View draws, copied out of a Model so it can be drawn while
+ * the Model keeps changing: the queue, the field grid and each block in play
+ * at the last two ticks.  Only the simulation writes a snapshot, through
+ * capture(), and the View only reads it once it has been published.
+ */
+public class RenderSnapshot {
+
+    private static final BlockType[] TYPES = BlockType.values();
+
+    float alpha;
+
+    int     queueSize;
+    byte[]  queueTypes = new byte[0];
+    float[] queueX     = new float[0];
+    float   queueY;
+
+    final byte[] field = new byte[BlockField.FIELD_WIDTH * BlockField.FIELD_HEIGHT];
+    int          fieldVersion = -1;
+
+    // Field cell a Bot plans to fill next, or -1 when there is no hint
+    int hintRow = -1;
+    int hintCol = -1;
+
+    int     numBlocks;
+    float[] prevX = new float[16];
+    float[] prevY = new float[16];
+    float[] x     = new float[16];
+    float[] y     = new float[16];
+    byte[]  type  = new byte[16];
+
+    // Sized for every effect that can play at once, so capturing never grows them
+    int           numEffects;
+    final float[] effectX      = new float[Effects.MAX_EFFECTS];
+    final float[] effectY      = new float[Effects.MAX_EFFECTS];
+    final float[] effectScaleX = new float[Effects.MAX_EFFECTS];
+    final float[] effectScaleY = new float[Effects.MAX_EFFECTS];
+    final float[] effectColor  = new float[Effects.MAX_EFFECTS];
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    public float     getAlpha()                     { return alpha; }
+    public int       getQueueSize()                 { return queueSize; }
+    public BlockType getQueueType(int i)            { return TYPES[queueTypes[i]]; }
+    public float     getQueueX(int i)               { return queueX[i]; }
+    public float     getQueueY()                    { return queueY; }
+    public BlockType getFieldType(int row, int col) { return TYPES[field[row * BlockField.FIELD_WIDTH + col]]; }
+    public int       getFieldVersion()              { return fieldVersion; }
+    public int       getHintRow()                   { return hintRow; }
+    public int       getHintCol()                   { return hintCol; }
+    public int       getNumEffects()                { return numEffects; }
+    public float     getEffectX(int i)              { return effectX[i]; }
+    public float     getEffectY(int i)              { return effectY[i]; }
+    public float     getEffectScaleX(int i)         { return effectScaleX[i]; }
+    public float     getEffectScaleY(int i)         { return effectScaleY[i]; }
+
+    /**
+     * Returns effect i's color packed as by Color.toFloatBits()
+     */
+    public float getEffectColor(int i) { return effectColor[i]; }
+    public int       getNumBlocks()                 { return numBlocks; }
+    public BlockType getType(int i)                 { return TYPES[type[i]]; }
+
+    /**
+     * Returns block i's position a fraction alpha of the way between the last two ticks
+     */
+    public float getX(int i) { return prevX[i] + (x[i] - prevX[i]) * alpha; }
+    public float getY(int i) { return prevY[i] + (y[i] - prevY[i]) * alpha; }
+
+    /**
+     * Copy the model's drawable state
+     * @param alpha how far past the model's latest tick to draw, 0 - 1
+     */
+    public void capture(Model model, float alpha) {
+        this.alpha = alpha;
+        captureQueue(model.getBlockQueue());
+        captureField(model.getBlockField());
+
+        final DroppingBlocks dropping = model.getDroppingBlocks();
+        final InPlayBlocks   flinging = model.getFlingingBlocks();
+        ensureCapacity(dropping.size() + flinging.size());
+
+        final double time     = model.getTime();
+        final double prevTime = model.getRenderTime(0);
+        int n = 0;
+        for (int i = 0; i < dropping.size(); ++i, ++n) {
+            prevX[n] = dropping.getX(i, prevTime);
+            prevY[n] = dropping.getY(i, prevTime);
+            x[n]     = dropping.getX(i, time);
+            y[n]     = dropping.getY(i, time);
+            type[n]  = (byte) dropping.getType(i).ordinal();
+        }
+        for (int i = 0; i < flinging.size(); ++i, ++n) {
+            prevX[n] = flinging.getPrevX(i);
+            prevY[n] = flinging.getY(i);
+            x[n]     = flinging.getX(i);
+            y[n]     = flinging.getY(i);
+            type[n]  = (byte) flinging.getType(i).ordinal();
+        }
+        numBlocks = n;
+
+        captureEffects(model.getEffects());
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private void captureQueue(BlockQueue blockQueue) {
+        queueSize = blockQueue.size();
+        if (queueTypes.length < queueSize) {
+            queueTypes = new byte[queueSize];
+            queueX     = new float[queueSize];
+        }
+        for (int i = 0; i < queueSize; ++i) {
+            queueTypes[i] = (byte) blockQueue.get(i).ordinal();
+            queueX[i]     = blockQueue.getX(i);
+        }
+        queueY = blockQueue.getY();
+    }
+
+    // Snapshots take turns being written, so each tracks the field version it holds
+    private void captureField(BlockField blockField) {
+        if (fieldVersion == blockField.getVersion()) {
+            return;
+        }
+        final Block[][] blocks = blockField.getBlocks();
+        for (int row = 0; row < BlockField.FIELD_HEIGHT; ++row) {
+            for (int col = 0; col < BlockField.FIELD_WIDTH; ++col) {
+                field[row * BlockField.FIELD_WIDTH + col] = (byte) blocks[row][col].type.ordinal();
+            }
+        }
+        fieldVersion = blockField.getVersion();
+    }
+
+    private void captureEffects(Effects effects) {
+        numEffects = (effects == null) ? 0 : effects.size();
+        for (int i = 0; i < numEffects; ++i) {
+            effectX[i]      = effects.getX(i);
+            effectY[i]      = effects.getY(i);
+            effectScaleX[i] = effects.getScaleX(i);
+            effectScaleY[i] = effects.getScaleY(i);
+            effectColor[i]  = effects.getColor(i).toFloatBits();
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= x.length) {
+            return;
+        }
+        capacity = Math.max(capacity, x.length * 2);
+        prevX = InPlayBlocks.copyOf(prevX, capacity);
+        prevY = InPlayBlocks.copyOf(prevY, capacity);
+        x     = InPlayBlocks.copyOf(x, capacity);
+        y     = InPlayBlocks.copyOf(y, capacity);
+        type  = InPlayBlocks.copyOf(type, capacity);
+    }
+
+}
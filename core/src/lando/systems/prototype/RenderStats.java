@@ -0,0 +1,41 @@
+package lando.systems.prototype;
+
+/**
+ * Counters for the most recent frame drawn by View.render.  Draw calls are
+ * the batch's flushes plus the field cache's draws, each of which is one GL
+ * draw call, sprites are the quads submitted to either of them.  Text in the
+ * profiler overlay goes through the batch, so it shows up in the batch's
+ * calls but not in the sprite count.
+ */
+public class RenderStats {
+
+    int drawCalls;
+    int batchRenderCalls;
+    int cacheRenderCalls;
+    int sprites;
+    int maxSpritesInBatch;
+    int fieldRebuilds;
+
+    public int getDrawCalls()         { return drawCalls; }
+    public int getBatchRenderCalls()  { return batchRenderCalls; }
+    public int getCacheRenderCalls()  { return cacheRenderCalls; }
+    public int getSprites()           { return sprites; }
+    public int getMaxSpritesInBatch() { return maxSpritesInBatch; }
+    public int getFieldRebuilds()     { return fieldRebuilds; }
+
+    void reset() {
+        drawCalls         = 0;
+        batchRenderCalls  = 0;
+        cacheRenderCalls  = 0;
+        sprites           = 0;
+        maxSpritesInBatch = 0;
+        fieldRebuilds     = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "draw calls " + drawCalls + " (batch " + batchRenderCalls + ", cache " + cacheRenderCalls + ")"
+             + ", sprites " + sprites + ", max in batch " + maxSpritesInBatch + ", field rebuilds " + fieldRebuilds;
+    }
+
+}
@@ -0,0 +1,87 @@
+package lando.systems.prototype;
+
+/**
+ * Running score for a BlockField, added to by the field as it finds each run
+ * during a cascade, so scoring never rescans the grid.  Every run is worth
+ * RUN_POINTS per block plus LONG_RUN_POINTS per block past the minimum match,
+ * multiplied by the cascade step it cleared on.
+ *
+ * Only the field writes to it, everyone else gets read access.
+ */
+public class Score {
+
+    public static final int RUN_POINTS      = 10;
+    public static final int LONG_RUN_POINTS = 20;
+    public static final int MAX_RUN_LENGTH  = Math.max(BlockField.FIELD_WIDTH, BlockField.FIELD_HEIGHT);
+
+    long points;
+    long runs;
+    long horizontalRuns;
+    long verticalRuns;
+    int  longestRun;
+    int  maxMultiplier;
+    final long[] runLengthCounts = new long[MAX_RUN_LENGTH + 1];
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    public long getPoints()         { return points; }
+    public long getRuns()           { return runs; }
+    public long getHorizontalRuns() { return horizontalRuns; }
+    public long getVerticalRuns()   { return verticalRuns; }
+    public int  getLongestRun()     { return longestRun; }
+    public int  getMaxMultiplier()  { return maxMultiplier; }
+
+    /**
+     * Returns how many runs of exactly the given length have cleared
+     */
+    public long getRunLengthCount(int length) {
+        return (length < 0 || length > MAX_RUN_LENGTH) ? 0 : runLengthCounts[length];
+    }
+
+    /**
+     * Returns the points a run of the given length is worth on a cascade step
+     */
+    public static int getRunPoints(int length, int chainDepth) {
+        return (RUN_POINTS * length + LONG_RUN_POINTS * (length - BlockField.NUM_MATCH_BLOCKS)) * chainDepth;
+    }
+
+    @Override
+    public String toString() {
+        return "points " + points + ", runs " + runs + " (" + horizontalRuns + " horizontal, "
+             + verticalRuns + " vertical), longest " + longestRun + ", max multiplier " + maxMultiplier;
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    /**
+     * Count a run found on the given cascade step, returns the points it scored
+     */
+    int addRun(int length, boolean horizontal, int chainDepth) {
+        final int runPoints = getRunPoints(length, chainDepth);
+        points += runPoints;
+        ++runs;
+        if (horizontal) ++horizontalRuns;
+        else            ++verticalRuns;
+        ++runLengthCounts[length];
+        if (length > longestRun)        longestRun    = length;
+        if (chainDepth > maxMultiplier) maxMultiplier = chainDepth;
+        return runPoints;
+    }
+
+    void reset() {
+        points         = 0;
+        runs           = 0;
+        horizontalRuns = 0;
+        verticalRuns   = 0;
+        longestRun     = 0;
+        maxMultiplier  = 0;
+        for (int i = 0; i <= MAX_RUN_LENGTH; ++i) {
+            runLengthCounts[i] = 0;
+        }
+    }
+
+}
@@ -0,0 +1,191 @@
+package lando.systems.prototype;
+
+import com.badlogic.gdx.utils.async.AsyncTask;
+import lando.systems.prototype.replay.Recorder;
+
+/**
+ * Steps a Model in fixed ticks and publishes a RenderSnapshot after each
+ * advance.  Frame time is gathered on the render thread, then handOff()
+ * passes it to the next advance.  The advance itself is call(), so it can
+ * run in place or as an AsyncTask on a worker thread.
+ *
+ * Flings go through an InputQueue stamped with the input clock.  The hand
+ * off is stamped with the same clock, which tells the advance what time
+ * each of its ticks stands for, and a fling is applied before the first
+ * tick that starts after it happened.  Flings newer than the last tick wait
+ * in the queue for the next advance, so none are lost or merged however
+ * long a frame takes.
+ *
+ * A Bot can plan alongside the player, either showing where it would fling
+ * the next block or flinging it itself.  Bot flings go through the Recorder
+ * like the player's, so recordings of autoplay replay the same way.
+ *
+ * While an advance is running only the render thread side (queueFling,
+ * addFrameTime, getSnapshots().acquire()) may be used, and handOff() must
+ * wait until it has finished.  The input queue is read by the advance, so
+ * queueFling() is safe at any time.
+ */
+public class Simulation implements AsyncTask<Void> {
+
+    /** Seconds simulated per model tick, independent of the display rate */
+    public static final float TIMESTEP     = 1f / 60f;
+    /** Most ticks run in one advance, time beyond that after a stall is dropped */
+    public static final int   MAX_SUBSTEPS = 8;
+
+    public static final int BOT_OFF      = 0;
+    public static final int BOT_HINT     = 1;
+    public static final int BOT_AUTOPLAY = 2;
+
+    private static final float NANOS_PER_SEC = 1000000000f;
+
+    private final Model          model;
+    private final Recorder       recorder;
+    private final SnapshotBuffer snapshots;
+    private final InputQueue     input;
+    private final Bot            bot;
+
+    // Gathered on the render thread
+    private float inboxTime;
+    private int   inboxBotMode = BOT_OFF;
+
+    // Owned by the advance
+    private float workTime;
+    private long  workClock = InputQueue.NOW;
+    private float accum;
+    private int   botMode = BOT_OFF;
+
+    public Simulation(Model model) {
+        this.model     = model;
+        this.recorder  = new Recorder(model, TIMESTEP);
+        this.snapshots = new SnapshotBuffer();
+        this.input     = new InputQueue();
+        this.bot       = new Bot();
+        publish();
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    /**
+     * Fling before the next tick
+     */
+    public void queueFling(float worldTouchX, float worldTouchY) {
+        input.push(InputQueue.NOW, worldTouchX, worldTouchY);
+    }
+
+    /**
+     * Fling before the first tick that starts after the given input clock
+     * time, in nanoseconds.  Flings are applied in the order they are queued.
+     */
+    public void queueFling(float worldTouchX, float worldTouchY, long eventNanos) {
+        input.push(eventNanos, worldTouchX, worldTouchY);
+    }
+
+    public void addFrameTime(float deltaTime) {
+        inboxTime += deltaTime;
+    }
+
+    /**
+     * Takes effect from the next hand off
+     * @param mode BOT_OFF, BOT_HINT or BOT_AUTOPLAY
+     */
+    public void setBotMode(int mode) {
+        inboxBotMode = mode;
+    }
+
+    public int getBotMode() {
+        return inboxBotMode;
+    }
+
+    /**
+     * Pass everything gathered since the last hand off to the next advance,
+     * without a clock every queued fling is applied before its first tick
+     */
+    public void handOff() {
+        handOff(InputQueue.NOW);
+    }
+
+    /**
+     * Pass everything gathered since the last hand off to the next advance
+     * @param clockNanos input clock time that the gathered frame time runs up to
+     */
+    public void handOff(long clockNanos) {
+        workTime  = inboxTime;
+        workClock = clockNanos;
+        inboxTime = 0;
+        botMode   = inboxBotMode;
+    }
+
+    /**
+     * Run the ticks that fit in the handed off time, applying each queued
+     * fling before the tick that follows it, then publish a snapshot
+     */
+    @Override
+    public Void call() {
+        accum += workTime;
+        workTime = 0;
+        int substeps = 0;
+        while (accum >= TIMESTEP && substeps < MAX_SUBSTEPS) {
+            applyInput(getTickClock());
+            if (botMode != BOT_OFF && bot.update(model) && botMode == BOT_AUTOPLAY) {
+                recorder.handleFling(bot.getFlingX(), bot.getFlingY());
+            }
+            recorder.step();
+            accum -= TIMESTEP;
+            ++substeps;
+        }
+        if (accum >= TIMESTEP) {
+            accum %= TIMESTEP;
+        }
+
+        publish();
+        return null;
+    }
+
+    public SnapshotBuffer getSnapshots() {
+        return snapshots;
+    }
+
+    public InputQueue getInput() {
+        return input;
+    }
+
+    /**
+     * Only safe while no advance is running
+     */
+    public Recorder getRecorder() {
+        return recorder;
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the input clock time the model's current tick starts at, the
+     * handed off clock less the frame time still left to simulate
+     */
+    private long getTickClock() {
+        if (workClock == InputQueue.NOW) {
+            return Long.MAX_VALUE;
+        }
+        return workClock - (long) (accum * NANOS_PER_SEC);
+    }
+
+    private void applyInput(long clock) {
+        while (input.isDue(clock)) {
+            recorder.handleFling(input.peekX(), input.peekY());
+            input.pop();
+        }
+    }
+
+    private void publish() {
+        final RenderSnapshot snapshot = snapshots.getBack();
+        snapshot.capture(model, accum / TIMESTEP);
+        snapshot.hintRow = (botMode == BOT_OFF) ? BoardSearch.NO_ROW : bot.getPlannedRow();
+        snapshot.hintCol = (botMode == BOT_OFF) ? -1 : bot.getPlannedCol();
+        snapshots.publish();
+    }
+
+}
@@ -0,0 +1,58 @@
+package lando.systems.prototype;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands RenderSnapshots from the simulation to the View without locks.
+ * The writer fills the back snapshot and publishes it, the reader acquires
+ * the newest published snapshot and keeps drawing it until a newer one is
+ * published.  A third, spare snapshot sits between the two, so the writer
+ * never waits for the reader or writes to the snapshot being drawn.
+ */
+public class SnapshotBuffer {
+
+    private static final int FRESH = 4;
+    private static final int INDEX = 3;
+
+    private final RenderSnapshot[] snapshots;
+    private final AtomicInteger    spare;
+    private int back;
+    private int front;
+
+    public SnapshotBuffer() {
+        snapshots = new RenderSnapshot[] { new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot() };
+        back  = 0;
+        spare = new AtomicInteger(1);
+        front = 2;
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    /**
+     * Writer only: the snapshot to fill before calling publish()
+     */
+    public RenderSnapshot getBack() {
+        return snapshots[back];
+    }
+
+    /**
+     * Writer only: make the back snapshot the newest one
+     */
+    public void publish() {
+        back = spare.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * Reader only: returns the newest published snapshot, which stays valid
+     * until the next call
+     */
+    public RenderSnapshot acquire() {
+        if ((spare.get() & FRESH) != 0) {
+            front = spare.getAndSet(front) & INDEX;
+        }
+        return snapshots[front];
+    }
+
+}
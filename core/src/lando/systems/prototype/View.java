@@ -4,73 +4,115 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
-import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.utils.Disposable;
-import lando.systems.prototype.Block.State;
-
-import java.util.List;
 
 /**
  * Brian Ploeckelman created on 1/16/2015.
  */
 public class View implements Disposable {
 
-    public static final int   VIEW_WIDTH             = 800;
-    public static final int   VIEW_HEIGHT            = 480;
-    public static final float DROP_REGION_WIDTH      = VIEW_WIDTH / 3;
-    public static final float BLOCK_PADDING          = 8f;
-    public static final float BLOCK_QUEUE_MARGIN_TOP = 16;
-    public static final float BLOCK_QUEUE_POSITION_X = DROP_REGION_WIDTH / 2 -
-                                                       Block.SIZE / 2;
-    public static final float BLOCK_QUEUE_POSITION_Y = VIEW_HEIGHT -
-                                                       BLOCK_QUEUE_MARGIN_TOP -
-                                                       Block.SIZE;
-
-    Model              model;
     SpriteBatch        batch;
-    Texture            spritesheet;
+    SpriteCache        fieldCache;
     TextureRegion      blockTexture;
     TextureRegion      emptyTexture;
     TextureRegion      dropRegionTexture;
     OrthographicCamera camera;
+    BitmapFont         font;
+    Profiler           profilerOverlay;
+
+    final RenderStats stats = new RenderStats();
 
-    public View(Model model) {
-        this.model = model;
+    /**
+     * @param assets loaded art, which stays owned by the caller
+     */
+    public View(Assets assets) {
+        this(assets.getBlock(), assets.getEmpty(), assets.getDropRegion());
+    }
+
+    /**
+     * @param block      region drawn for every block, tinted by type
+     * @param empty      region for an empty cell
+     * @param dropRegion region stretched over the drop region
+     */
+    public View(TextureRegion block, TextureRegion empty, TextureRegion dropRegion) {
         batch = new SpriteBatch();
+        fieldCache = new SpriteCache(BlockField.FIELD_WIDTH * BlockField.FIELD_HEIGHT, false);
         camera = new OrthographicCamera();
-        camera.setToOrtho(false, VIEW_WIDTH, VIEW_HEIGHT);
-        spritesheet = new Texture("spritesheet.png");
-        TextureRegion[][] regions = TextureRegion.split(spritesheet,
-                                                        Block.SIZE,
-                                                        Block.SIZE);
-        blockTexture      = regions[0][0];
-        emptyTexture      = regions[0][1];
-        dropRegionTexture = regions[0][2];
+        camera.setToOrtho(false, Layout.VIEW_WIDTH, Layout.VIEW_HEIGHT);
+        blockTexture      = block;
+        emptyTexture      = empty;
+        dropRegionTexture = dropRegion;
     }
 
     // -------------------------------------------------------------------------
     // Public interface
     // -------------------------------------------------------------------------
 
-    public void render() {
+    /**
+     * Draw a published snapshot, the View never reads the Model directly so
+     * the Model can be stepped on another thread
+     */
+    public void render(RenderSnapshot snapshot) {
         Gdx.gl.glClearColor(0, 0, 0.2f, 1);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
         camera.update();
+        stats.reset();
+
+        // Nothing else overlaps the field, so it can be drawn first on its own
+        drawBlockField(snapshot);
+
         batch.setProjectionMatrix(camera.combined);
+        batch.maxSpritesInBatch = 0;
         batch.begin();
         drawDropRegion();
-        drawBlockQueue(model.getBlockQueue());
-        drawBlockField(model.getBlockField());
-        drawBlocksInPlay(model.getBlocksInPlay());
+        drawBlockQueue(snapshot);
+        drawBlocksInPlay(snapshot);
+        drawEffects(snapshot);
+        drawHint(snapshot);
+        if (profilerOverlay != null) {
+            drawProfilerOverlay(profilerOverlay);
+        }
         batch.end();
+
+        // Both reset their render calls in begin(), so these cover this frame only
+        stats.batchRenderCalls  = batch.renderCalls;
+        stats.cacheRenderCalls  = fieldCache.renderCalls;
+        stats.drawCalls         = stats.batchRenderCalls + stats.cacheRenderCalls;
+        stats.maxSpritesInBatch = batch.maxSpritesInBatch;
+    }
+
+    /**
+     * Returns the counters for the most recent render(), read only
+     */
+    public RenderStats getStats() {
+        return stats;
+    }
+
+    public Profiler getProfilerOverlay() {
+        return profilerOverlay;
+    }
+
+    /**
+     * Show timings from a profiler on top of the game, or hide them if null
+     */
+    public void setProfilerOverlay(Profiler profiler) {
+        if (profiler != null && font == null) {
+            font = new BitmapFont();
+        }
+        profilerOverlay = profiler;
     }
 
     @Override
     public void dispose() {
-        spritesheet.dispose();
+        if (font != null) {
+            font.dispose();
+        }
+        fieldCache.dispose();
         batch.dispose();
     }
 
@@ -78,54 +120,124 @@ public class View implements Disposable {
     // Private implementation
     // -------------------------------------------------------------------------
 
-    private void drawBlockQueue(List<Block> blockQueue) {
-        for (Block block : blockQueue) {
-            drawBlock(batch, block);
+    private void drawBlockQueue(RenderSnapshot snapshot) {
+        for (int i = 0; i < snapshot.getQueueSize(); ++i) {
+            drawBlock(batch, snapshot.getQueueType(i), snapshot.getQueueX(i), snapshot.getQueueY());
         }
         batch.setColor(Color.WHITE);
     }
 
-    private void drawBlockField(BlockField blockField) {
-        for (Block[] blockRow : blockField.getBlocks()) {
-            for (Block block : blockRow) {
-                drawBlock(batch, block);
+    // The field only changes when blocks land or clear, so its sprites are
+    // cached on the GPU and rebuilt only when the field's version changes
+    private int fieldCacheId      = -1;
+    private int fieldCacheVersion = -1;
+
+    private void drawBlockField(RenderSnapshot snapshot) {
+        if (fieldCacheId < 0 || fieldCacheVersion != snapshot.getFieldVersion()) {
+            rebuildFieldCache(snapshot);
+        }
+        fieldCache.setProjectionMatrix(camera.combined);
+        fieldCache.begin();
+        fieldCache.draw(fieldCacheId);
+        fieldCache.end();
+        stats.sprites += BlockField.FIELD_WIDTH * BlockField.FIELD_HEIGHT;
+    }
+
+    private void rebuildFieldCache(RenderSnapshot snapshot) {
+        fieldCache.clear();
+        fieldCache.beginCache();
+        for (int row = 0; row < BlockField.FIELD_HEIGHT; ++row) {
+            for (int col = 0; col < BlockField.FIELD_WIDTH; ++col) {
+                fieldCache.setColor(BlockPalette.copyColor(snapshot.getFieldType(row, col), tint));
+                fieldCache.add(blockTexture,
+                               BlockField.FIELD_START_X + col * Block.SIZE,
+                               BlockField.FIELD_START_Y + row * Block.SIZE,
+                               Block.SIZE, Block.SIZE);
             }
         }
+        fieldCacheId      = fieldCache.endCache();
+        fieldCacheVersion = snapshot.getFieldVersion();
+        ++stats.fieldRebuilds;
+    }
+
+    private void drawBlocksInPlay(RenderSnapshot snapshot) {
+        for (int i = 0; i < snapshot.getNumBlocks(); ++i) {
+            drawBlock(batch, snapshot.getType(i), snapshot.getX(i), snapshot.getY(i));
+        }
         batch.setColor(Color.WHITE);
     }
 
-    private void drawBlocksInPlay(List<Block> blocksInPlay) {
-        for (Block block : blocksInPlay) {
-            // Ignore blocks in a state that doesn't make sense
-            // NOTE: this shouldn't ever happen
-            if (!State.DROPPING.equals(block.state)
-             && !State.FLINGING.equals(block.state)) {
-                Gdx.app.error("WARN",
-                              "Block in in-play list with state: " +
-                              block.state.name());
-                continue;
-            }
+    private void drawEffects(RenderSnapshot snapshot) {
+        // Effects scale about their cell's center
+        for (int i = 0; i < snapshot.getNumEffects(); ++i) {
+            final float width  = Block.SIZE * snapshot.getEffectScaleX(i);
+            final float height = Block.SIZE * snapshot.getEffectScaleY(i);
+            batch.setColor(snapshot.getEffectColor(i));
+            batch.draw(blockTexture,
+                       snapshot.getEffectX(i) + (Block.SIZE - width)  / 2,
+                       snapshot.getEffectY(i) + (Block.SIZE - height) / 2,
+                       width, height);
+        }
+        stats.sprites += snapshot.getNumEffects();
+        batch.setColor(Color.WHITE);
+    }
 
-            drawBlock(batch, block);
+    private void drawHint(RenderSnapshot snapshot) {
+        if (snapshot.getHintRow() < 0 || snapshot.getHintCol() < 0) {
+            return;
         }
+        batch.setColor(COLOR_HINT);
+        batch.draw(blockTexture,
+                   BlockField.FIELD_START_X + snapshot.getHintCol() * Block.SIZE,
+                   BlockField.FIELD_START_Y + snapshot.getHintRow() * Block.SIZE,
+                   Block.SIZE, Block.SIZE);
+        ++stats.sprites;
         batch.setColor(Color.WHITE);
     }
 
     private void drawBlock(SpriteBatch batch, BlockType blockType, float x, float y) {
-        batch.setColor(blockType.getColor());
+        batch.setColor(BlockPalette.copyColor(blockType, tint));
         batch.draw(blockTexture, x, y, Block.SIZE, Block.SIZE);
+        ++stats.sprites;
     }
 
-    private void drawBlock(SpriteBatch batch, Block block) {
-        drawBlock(batch, block.type, block.position.x, block.position.y);
+    private static final Color COLOR_HINT = new Color(1, 1, 1, 0.5f);
+
+    // Scratch for block colors, batch and cache copy it as it is set
+    private final Color tint = new Color();
+
+    private static final int[] OVERLAY_PHASES = {
+        Profiler.FRAME, Profiler.INPUT, Profiler.UPDATE, Profiler.RENDER, Profiler.CASCADE
+    };
+
+    private final StringBuilder overlayText = new StringBuilder();
+
+    private void drawProfilerOverlay(Profiler profiler) {
+        final float lineHeight = font.getLineHeight();
+        float y = Layout.VIEW_HEIGHT - 4;
+
+        overlayText.setLength(0);
+        overlayText.append("p50 / p99 / max");
+        font.draw(batch, overlayText, 4, y);
+        for (int phase : OVERLAY_PHASES) {
+            y -= lineHeight;
+            overlayText.setLength(0);
+            font.draw(batch, profiler.appendSummary(overlayText, phase), 4, y);
+        }
+
+        y -= lineHeight;
+        overlayText.setLength(0);
+        overlayText.append("alloc: ").append((long) (profiler.getAllocationRate() / 1024)).append(" KB/s");
+        font.draw(batch, overlayText, 4, y);
     }
 
     private void drawDropRegion() {
         batch.draw(dropRegionTexture,
                    0,
                    0,
-                   DROP_REGION_WIDTH,
-                   BLOCK_QUEUE_POSITION_Y - 2 * BLOCK_QUEUE_MARGIN_TOP);
+                   Layout.DROP_REGION_WIDTH,
+                   Layout.BLOCK_QUEUE_POSITION_Y - 2 * Layout.BLOCK_QUEUE_MARGIN_TOP);
+        ++stats.sprites;
     }
 
 }
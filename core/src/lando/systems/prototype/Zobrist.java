@@ -0,0 +1,72 @@
+package lando.systems.prototype;
+
+import com.badlogic.gdx.math.RandomXS128;
+
+/**
+ * Zobrist keys for hashing field grids: a random 64 bit key per (cell, type),
+ * and a grid's hash is the xor of the keys of its filled cells.  An empty
+ * grid hashes to 0, and placing, clearing or moving a block updates the hash
+ * with one or two xors instead of rehashing the whole grid.
+ *
+ * Keys come from a fixed seed, so hashes are the same on every run and
+ * platform and can be compared across replays and processes.
+ */
+public class Zobrist {
+
+    private static final long SEED = 0x2f1a9c4be7d30615L;
+
+    private static final int   NUM_TYPES = BitBoard.NUM_TYPES;
+    private static final int   WIDTH     = BlockField.FIELD_WIDTH;
+    private static final long[] CELL_KEYS = new long[BitBoard.NUM_CELLS * NUM_TYPES];
+    private static final long[] MOVE_KEYS = new long[BlockField.FIELD_HEIGHT * NUM_TYPES];
+    static {
+        final RandomXS128 random = new RandomXS128(SEED);
+        for (int i = 0; i < CELL_KEYS.length; ++i) {
+            CELL_KEYS[i] = random.nextLong();
+        }
+        for (int i = 0; i < MOVE_KEYS.length; ++i) {
+            MOVE_KEYS[i] = random.nextLong();
+        }
+    }
+
+    private Zobrist() {}
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the key for a block of the given type at (row, col), or 0 for EMPTY
+     */
+    public static long cell(int row, int col, BlockType type) {
+        return cell(row * WIDTH + col, type.ordinal());
+    }
+
+    /**
+     * Returns the key for a block landing in a row, to combine a grid hash
+     * with the move made from it
+     */
+    public static long move(int row, BlockType type) {
+        return MOVE_KEYS[row * NUM_TYPES + type.ordinal()];
+    }
+
+    public static long hash(BlockField field) {
+        final Block[][] blocks = field.getBlocks();
+        long hash = 0;
+        for (int row = 0; row < blocks.length; ++row) {
+            for (int col = 0; col < blocks[row].length; ++col) {
+                hash ^= cell(row, col, blocks[row][col].type);
+            }
+        }
+        return hash;
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    static long cell(int bit, int type) {
+        return (type < NUM_TYPES) ? CELL_KEYS[bit * NUM_TYPES + type] : 0;
+    }
+
+}
@@ -0,0 +1,62 @@
+package lando.systems.prototype.replay;
+
+import lando.systems.prototype.GameSnapshot;
+import lando.systems.prototype.Model;
+
+/**
+ * Steps a Model one fixed tick at a time and records each fling against the
+ * tick it happened before, so the session can be replayed exactly.  A model
+ * that has already run, such as one resumed from a GameSnapshot, has its
+ * state saved into the recording so the replay starts from the same place.
+ */
+public class Recorder {
+
+    public static final float DEFAULT_TIMESTEP = 1f / 60f;
+
+    private final Model     model;
+    private final Recording recording;
+    private final float     timestep;
+
+    public Recorder(Model model) {
+        this(model, DEFAULT_TIMESTEP);
+    }
+
+    public Recorder(Model model, float timestep) {
+        this.model     = model;
+        this.timestep  = timestep;
+        this.recording = new Recording(model.getConfig(), timestep);
+        if (model.getTime() > 0) {
+            recording.startState = GameSnapshot.save(model);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    /**
+     * Advance the model by one tick
+     */
+    public void step() {
+        model.update(timestep);
+        ++recording.numTicks;
+    }
+
+    public void handleFling(float worldTouchX, float worldTouchY) {
+        recording.addFling(recording.numTicks, worldTouchX, worldTouchY);
+        model.handleFling(worldTouchX, worldTouchY);
+    }
+
+    /**
+     * Capture the current field as the expected end state and return the recording
+     */
+    public Recording finish() {
+        recording.captureField(model.getBlockField());
+        return recording;
+    }
+
+    public Recording getRecording() {
+        return recording;
+    }
+
+}
@@ -0,0 +1,209 @@
+package lando.systems.prototype.replay;
+
+import lando.systems.prototype.Block;
+import lando.systems.prototype.BlockField;
+import lando.systems.prototype.GameSnapshot;
+import lando.systems.prototype.Model;
+import lando.systems.prototype.ModelConfig;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Everything needed to play a session back: the settings and seed the Model
+ * was created with, the GameSnapshot it started from if it was resumed
+ * rather than new, the fixed timestep it was stepped with, every fling and
+ * the tick it happened before, and the field the session ended with.
+ *
+ * Binary layout, big endian:
+ *   int   magic 'FLNG', int version
+ *   long  seed, float dropDelay, int numLanes, float timestep
+ *   int   startSize, startSize bytes of GameSnapshot, 0 for a new game (version 2 on)
+ *   int   numTicks, int numFlings, numFlings * (int tick, float x, float y)
+ *   byte  hasField, then FIELD_HEIGHT * FIELD_WIDTH block type ordinals if set
+ */
+public class Recording {
+
+    public static final int MAGIC   = 0x464C4E47;
+    public static final int VERSION = 2;
+
+    private static final int NUM_CELLS   = BlockField.FIELD_WIDTH * BlockField.FIELD_HEIGHT;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4 + 4 + 4 + 4 + 4;
+    private static final int FLING_SIZE  = 4 + 4 + 4;
+
+    final long  seed;
+    final float dropDelay;
+    final int   numLanes;
+    final float timestep;
+
+    int     numTicks;
+    int     numFlings;
+    int[]   flingTick;
+    float[] flingX;
+    float[] flingY;
+    byte[]  finalField;
+    byte[]  startState;
+
+    public Recording(ModelConfig config, float timestep) {
+        this(config.seed, config.dropDelay, config.numLanes, timestep);
+    }
+
+    private Recording(long seed, float dropDelay, int numLanes, float timestep) {
+        this.seed      = seed;
+        this.dropDelay = dropDelay;
+        this.numLanes  = numLanes;
+        this.timestep  = timestep;
+        this.flingTick = new int[16];
+        this.flingX    = new float[16];
+        this.flingY    = new float[16];
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    public long  getSeed()      { return seed; }
+    public float getTimestep()  { return timestep; }
+    public int   getNumTicks()  { return numTicks; }
+    public int   getNumFlings() { return numFlings; }
+    public int   getFlingTick(int i) { return flingTick[i]; }
+    public float getFlingX(int i)    { return flingX[i]; }
+    public float getFlingY(int i)    { return flingY[i]; }
+    public boolean hasFinalField()   { return finalField != null; }
+    public boolean hasStartState()   { return startState != null; }
+
+    /**
+     * Returns a config that recreates the recorded Model
+     */
+    public ModelConfig createConfig() {
+        final ModelConfig config = new ModelConfig();
+        config.seed      = seed;
+        config.dropDelay = dropDelay;
+        config.numLanes  = numLanes;
+        return config;
+    }
+
+    /**
+     * Returns a Model in the state the recorded session started from
+     */
+    public Model createModel() {
+        final Model model = new Model(createConfig());
+        if (startState != null) {
+            GameSnapshot.load(startState, model);
+        }
+        return model;
+    }
+
+    /**
+     * Returns true if the field holds the same block types as the recorded final field
+     */
+    public boolean matchesField(BlockField field) {
+        if (finalField == null) {
+            return false;
+        }
+        final Block[][] blocks = field.getBlocks();
+        for (int row = 0; row < BlockField.FIELD_HEIGHT; ++row) {
+            for (int col = 0; col < BlockField.FIELD_WIDTH; ++col) {
+                if (blocks[row][col].type.ordinal() != finalField[row * BlockField.FIELD_WIDTH + col]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public byte[] encode() {
+        final int startSize = (startState != null) ? startState.length : 0;
+        final int size = HEADER_SIZE + startSize + numFlings * FLING_SIZE + 1
+                       + ((finalField != null) ? NUM_CELLS : 0);
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(seed);
+        buffer.putFloat(dropDelay);
+        buffer.putInt(numLanes);
+        buffer.putFloat(timestep);
+        buffer.putInt(startSize);
+        if (startState != null) {
+            buffer.put(startState);
+        }
+        buffer.putInt(numTicks);
+        buffer.putInt(numFlings);
+        for (int i = 0; i < numFlings; ++i) {
+            buffer.putInt(flingTick[i]);
+            buffer.putFloat(flingX[i]);
+            buffer.putFloat(flingY[i]);
+        }
+        buffer.put((byte) ((finalField != null) ? 1 : 0));
+        if (finalField != null) {
+            buffer.put(finalField);
+        }
+        return buffer.array();
+    }
+
+    public static Recording decode(byte[] bytes) {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length < HEADER_SIZE - 4 || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a recording");
+        }
+        final int version = buffer.getInt();
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Unsupported recording version '" + version + "'");
+        }
+
+        final Recording recording = new Recording(buffer.getLong(),
+                                                  buffer.getFloat(),
+                                                  buffer.getInt(),
+                                                  buffer.getFloat());
+        // Version 1 recordings always started from a new game
+        final int startSize = (version >= 2) ? buffer.getInt() : 0;
+        if (startSize > 0) {
+            recording.startState = new byte[startSize];
+            buffer.get(recording.startState);
+        }
+        final int numTicks  = buffer.getInt();
+        final int numFlings = buffer.getInt();
+        for (int i = 0; i < numFlings; ++i) {
+            recording.addFling(buffer.getInt(), buffer.getFloat(), buffer.getFloat());
+        }
+        recording.numTicks = numTicks;
+        if (buffer.get() != 0) {
+            recording.finalField = new byte[NUM_CELLS];
+            buffer.get(recording.finalField);
+        }
+        return recording;
+    }
+
+    // -------------------------------------------------------------------------
+    // Package interface, driven by Recorder
+    // -------------------------------------------------------------------------
+
+    void addFling(int tick, float x, float y) {
+        if (numFlings == flingTick.length) {
+            final int capacity = numFlings * 2;
+            final int[]   newTick = new int[capacity];
+            final float[] newX    = new float[capacity];
+            final float[] newY    = new float[capacity];
+            System.arraycopy(flingTick, 0, newTick, 0, numFlings);
+            System.arraycopy(flingX,    0, newX,    0, numFlings);
+            System.arraycopy(flingY,    0, newY,    0, numFlings);
+            flingTick = newTick;
+            flingX    = newX;
+            flingY    = newY;
+        }
+        flingTick[numFlings] = tick;
+        flingX[numFlings]    = x;
+        flingY[numFlings]    = y;
+        ++numFlings;
+    }
+
+    void captureField(BlockField field) {
+        final Block[][] blocks = field.getBlocks();
+        finalField = new byte[NUM_CELLS];
+        for (int row = 0; row < BlockField.FIELD_HEIGHT; ++row) {
+            for (int col = 0; col < BlockField.FIELD_WIDTH; ++col) {
+                finalField[row * BlockField.FIELD_WIDTH + col] = (byte) blocks[row][col].type.ordinal();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package lando.systems.prototype.replay;
+
+import lando.systems.prototype.Model;
+
+/**
+ * Re-runs a Recording on a fresh Model, or one restored to the state the
+ * recording started from, as fast as possible, with no rendering and no
+ * waiting between ticks.
+ */
+public class Replayer {
+
+    private final Recording recording;
+    private final Model     model;
+
+    public Replayer(Recording recording) {
+        this.recording = recording;
+        this.model     = recording.createModel();
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    /**
+     * Replay every tick and fling, then return true if the field ended up
+     * the same as it did in the recorded session
+     */
+    public boolean run() {
+        final float timestep = recording.timestep;
+        int fling = 0;
+        for (int tick = 0; tick < recording.numTicks; ++tick) {
+            fling = applyFlings(fling, tick);
+            model.update(timestep);
+        }
+        applyFlings(fling, recording.numTicks);
+        return recording.matchesField(model.getBlockField());
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private int applyFlings(int fling, int tick) {
+        while (fling < recording.numFlings && recording.flingTick[fling] == tick) {
+            model.handleFling(recording.flingX[fling], recording.flingY[fling]);
+            ++fling;
+        }
+        return fling;
+    }
+
+}
@@ -0,0 +1,305 @@
+package lando.systems.prototype.versus;
+
+import lando.systems.prototype.Model;
+import lando.systems.prototype.ModelConfig;
+import lando.systems.prototype.Simulation;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One side of a two player versus game kept in sync by determinism.  Every
+ * client runs a Model for each player, created from the same config so both
+ * get the same block sequence, and only the flings for each tick cross the
+ * Transport.
+ *
+ * A local fling is scheduled inputDelay ticks ahead and sent right away, and
+ * a tick only runs once the other side's flings for it have arrived, so both
+ * clients apply the same flings at the same ticks.  The delay hides the
+ * round trip, step() returns false while the other side is behind.
+ *
+ * Every checksumInterval ticks each side sends a checksum of both fields,
+ * built from their Zobrist hashes, and compares it with the other side's
+ * checksum for the same tick.  The first tick they differ at is kept as the
+ * desync tick.  Models run in float math, so both sides need to run on the
+ * same kind of platform to stay in sync.
+ *
+ * Packets, big endian:
+ *   byte INPUT,    int tick, byte numFlings, numFlings * (float x, float y)
+ *   byte CHECKSUM, int tick, long checksum
+ */
+public class LockstepSession {
+
+    public static final int NUM_PLAYERS               = 2;
+    public static final int DEFAULT_INPUT_DELAY       = 3;
+    public static final int DEFAULT_CHECKSUM_INTERVAL = 30;
+    public static final int MAX_FLINGS_PER_TICK       = 8;
+    public static final int MAX_PACKET_SIZE           = 1 + 4 + 1 + MAX_FLINGS_PER_TICK * 8;
+    public static final int NO_DESYNC                 = -1;
+
+    static final byte INPUT    = 1;
+    static final byte CHECKSUM = 2;
+
+    // Ticks of flings and checksums held, the other side is never more than
+    // twice the input delay ahead so this bounds the delay instead
+    private static final int WINDOW      = 128;
+    private static final int WINDOW_MASK = WINDOW - 1;
+    private static final int NONE        = -1;
+
+    private final Model[]   models = new Model[NUM_PLAYERS];
+    private final int       localPlayer;
+    private final int       remotePlayer;
+    private final Transport transport;
+    private final int       inputDelay;
+    private final int       checksumInterval;
+
+    // Flings for each player by tick, in slots of tick & WINDOW_MASK
+    private final int[][]   inputTick  = new int[NUM_PLAYERS][WINDOW];
+    private final int[][]   inputCount = new int[NUM_PLAYERS][WINDOW];
+    private final float[][] inputX     = new float[NUM_PLAYERS][WINDOW * MAX_FLINGS_PER_TICK];
+    private final float[][] inputY     = new float[NUM_PLAYERS][WINDOW * MAX_FLINGS_PER_TICK];
+
+    // Checksums by tick, in slots of (tick / checksumInterval) & WINDOW_MASK
+    private final int[]  localSumTick  = new int[WINDOW];
+    private final long[] localSum      = new long[WINDOW];
+    private final int[]  remoteSumTick = new int[WINDOW];
+    private final long[] remoteSum     = new long[WINDOW];
+
+    // Local flings not yet scheduled, as x, y pairs
+    private float[] pending = new float[2 * MAX_FLINGS_PER_TICK];
+    private int     numPending;
+
+    private final byte[]     packet = new byte[MAX_PACKET_SIZE];
+    private final ByteBuffer buffer = ByteBuffer.wrap(packet);
+
+    private int  tick;
+    private int  sentTick;
+    private int  desyncTick = NO_DESYNC;
+    private long stalls;
+    private long packetsSent;
+    private long bytesSent;
+    private long bytesReceived;
+
+    public LockstepSession(ModelConfig config, int localPlayer, Transport transport) {
+        this(config, localPlayer, transport, DEFAULT_INPUT_DELAY, DEFAULT_CHECKSUM_INTERVAL);
+    }
+
+    /**
+     * @param config           shared by both players on both clients, effects
+     *                         should be off if the clients run on parallel threads
+     * @param localPlayer      0 or 1, the other client takes the other
+     * @param inputDelay       ticks between a local fling and the tick it applies at
+     * @param checksumInterval ticks between checksums
+     */
+    public LockstepSession(ModelConfig config, int localPlayer, Transport transport,
+                           int inputDelay, int checksumInterval) {
+        if (localPlayer < 0 || localPlayer >= NUM_PLAYERS) {
+            throw new IllegalArgumentException("Player '" + localPlayer + "' out of range, 0 - " + (NUM_PLAYERS - 1));
+        }
+        if (inputDelay < 0 || 2 * inputDelay + 1 >= WINDOW) {
+            throw new IllegalArgumentException("Input delay " + inputDelay + " out of range, 0 - " + (WINDOW / 2 - 1));
+        }
+        if (checksumInterval < 1) {
+            throw new IllegalArgumentException("Checksum interval must be at least 1, not " + checksumInterval);
+        }
+        this.localPlayer      = localPlayer;
+        this.remotePlayer     = 1 - localPlayer;
+        this.transport        = transport;
+        this.inputDelay       = inputDelay;
+        this.checksumInterval = checksumInterval;
+
+        for (int p = 0; p < NUM_PLAYERS; ++p) {
+            models[p] = new Model(config);
+            for (int i = 0; i < WINDOW; ++i) {
+                inputTick[p][i] = NONE;
+            }
+            // Nobody can fling during the first inputDelay ticks
+            for (int t = 0; t < inputDelay; ++t) {
+                inputTick[p][t] = t;
+            }
+        }
+        for (int i = 0; i < WINDOW; ++i) {
+            localSumTick[i]  = NONE;
+            remoteSumTick[i] = NONE;
+        }
+        tick     = 0;
+        sentTick = inputDelay;
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    /**
+     * Fling for the local player, in world coordinates.  It is sent with the
+     * next input, at most MAX_FLINGS_PER_TICK flings go in each tick and the
+     * rest wait for the following ticks.
+     */
+    public void queueFling(float worldTouchX, float worldTouchY) {
+        if (numPending * 2 + 2 > pending.length) {
+            final float[] grown = new float[pending.length * 2];
+            System.arraycopy(pending, 0, grown, 0, numPending * 2);
+            pending = grown;
+        }
+        pending[numPending * 2]     = worldTouchX;
+        pending[numPending * 2 + 1] = worldTouchY;
+        ++numPending;
+    }
+
+    /**
+     * Read what has arrived, send the local input for the newest tick in
+     * reach, then run the next tick if the other side's input for it is here.
+     * Returns false if the tick is still waiting on the other side.
+     */
+    public boolean step() {
+        poll();
+        while (sentTick <= tick + inputDelay) {
+            sendInput(sentTick++);
+        }
+
+        final int slot = tick & WINDOW_MASK;
+        if (inputTick[remotePlayer][slot] != tick) {
+            ++stalls;
+            return false;
+        }
+        final int base = slot * MAX_FLINGS_PER_TICK;
+        for (int p = 0; p < NUM_PLAYERS; ++p) {
+            final Model model = models[p];
+            for (int i = 0; i < inputCount[p][slot]; ++i) {
+                model.handleFling(inputX[p][base + i], inputY[p][base + i]);
+            }
+            model.update(Simulation.TIMESTEP);
+        }
+        inputTick[localPlayer][slot]  = NONE;
+        inputTick[remotePlayer][slot] = NONE;
+        ++tick;
+
+        if (tick % checksumInterval == 0) {
+            final long checksum = getChecksum();
+            final int  sumSlot  = (tick / checksumInterval) & WINDOW_MASK;
+            localSumTick[sumSlot] = tick;
+            localSum[sumSlot]     = checksum;
+            sendChecksum(tick, checksum);
+            compareChecksums(sumSlot);
+        }
+        return true;
+    }
+
+    /**
+     * Read every packet that has arrived, step() starts with this
+     */
+    public void poll() {
+        int length;
+        while ((length = transport.receive(packet)) > 0) {
+            bytesReceived += length;
+            buffer.clear();
+            buffer.limit(length);
+            final byte kind       = buffer.get();
+            final int  packetTick = buffer.getInt();
+            if (kind == INPUT) {
+                receiveInput(packetTick);
+            } else if (kind == CHECKSUM) {
+                final int sumSlot = (packetTick / checksumInterval) & WINDOW_MASK;
+                remoteSumTick[sumSlot] = packetTick;
+                remoteSum[sumSlot]     = buffer.getLong();
+                compareChecksums(sumSlot);
+            } else {
+                throw new IllegalStateException("Unknown packet type '" + kind + "'");
+            }
+        }
+    }
+
+    /**
+     * Returns a checksum of both players' fields
+     */
+    public long getChecksum() {
+        return models[0].getBlockField().getHash()
+             ^ Long.rotateLeft(models[1].getBlockField().getHash(), 32);
+    }
+
+    public Model getModel(int player)   { return models[player]; }
+    public int   getLocalPlayer()       { return localPlayer; }
+    public int   getTick()              { return tick; }
+    public int   getInputDelay()        { return inputDelay; }
+    public int   getChecksumInterval()  { return checksumInterval; }
+    public int   getNumPending()        { return numPending; }
+
+    /**
+     * Returns the first tick the two sides' checksums differed at, or NO_DESYNC
+     */
+    public int     getDesyncTick() { return desyncTick; }
+    public boolean isDesynced()    { return desyncTick != NO_DESYNC; }
+
+    public long getStalls()        { return stalls; }
+    public long getPacketsSent()   { return packetsSent; }
+    public long getBytesSent()     { return bytesSent; }
+    public long getBytesReceived() { return bytesReceived; }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private void sendInput(int inputTickNum) {
+        final int slot  = inputTickNum & WINDOW_MASK;
+        final int base  = slot * MAX_FLINGS_PER_TICK;
+        final int count = Math.min(numPending, MAX_FLINGS_PER_TICK);
+        final float[] x = inputX[localPlayer];
+        final float[] y = inputY[localPlayer];
+
+        buffer.clear();
+        buffer.put(INPUT);
+        buffer.putInt(inputTickNum);
+        buffer.put((byte) count);
+        for (int i = 0; i < count; ++i) {
+            x[base + i] = pending[i * 2];
+            y[base + i] = pending[i * 2 + 1];
+            buffer.putFloat(x[base + i]);
+            buffer.putFloat(y[base + i]);
+        }
+        inputTick[localPlayer][slot]  = inputTickNum;
+        inputCount[localPlayer][slot] = count;
+
+        numPending -= count;
+        System.arraycopy(pending, count * 2, pending, 0, numPending * 2);
+        send();
+    }
+
+    private void sendChecksum(int checksumTick, long checksum) {
+        buffer.clear();
+        buffer.put(CHECKSUM);
+        buffer.putInt(checksumTick);
+        buffer.putLong(checksum);
+        send();
+    }
+
+    private void send() {
+        transport.send(packet, buffer.position());
+        bytesSent += buffer.position();
+        ++packetsSent;
+    }
+
+    private void receiveInput(int packetTick) {
+        final int count = buffer.get();
+        if (packetTick < tick || packetTick >= tick + WINDOW || count < 0 || count > MAX_FLINGS_PER_TICK) {
+            throw new IllegalStateException("Bad input packet for tick " + packetTick + " with "
+                                          + count + " flings at tick " + tick);
+        }
+        final int slot = packetTick & WINDOW_MASK;
+        final int base = slot * MAX_FLINGS_PER_TICK;
+        for (int i = 0; i < count; ++i) {
+            inputX[remotePlayer][base + i] = buffer.getFloat();
+            inputY[remotePlayer][base + i] = buffer.getFloat();
+        }
+        inputTick[remotePlayer][slot]  = packetTick;
+        inputCount[remotePlayer][slot] = count;
+    }
+
+    private void compareChecksums(int sumSlot) {
+        if (localSumTick[sumSlot] == NONE || localSumTick[sumSlot] != remoteSumTick[sumSlot]) {
+            return;
+        }
+        if (localSum[sumSlot] != remoteSum[sumSlot] && desyncTick == NO_DESYNC) {
+            desyncTick = localSumTick[sumSlot];
+        }
+    }
+
+}
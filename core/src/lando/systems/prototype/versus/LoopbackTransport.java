@@ -0,0 +1,99 @@
+package lando.systems.prototype.versus;
+
+/**
+ * In-process Transport, for running both sides of a versus game in one
+ * program.  createPair() returns two connected ends, each sends into the
+ * other's inbox.  Packets are copied into preallocated slots that are only
+ * added to if the reader falls far behind, and either end may be used from
+ * its own thread.
+ */
+public class LoopbackTransport implements Transport {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final int packetSize;
+
+    private byte[][] slots;
+    private int[]    lengths;
+    private int      head;
+    private int      size;
+
+    private LoopbackTransport peer;
+
+    private LoopbackTransport(int capacity, int packetSize) {
+        this.packetSize = packetSize;
+        this.slots      = new byte[capacity][packetSize];
+        this.lengths    = new int[capacity];
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    public static LoopbackTransport[] createPair() {
+        return createPair(DEFAULT_CAPACITY, LockstepSession.MAX_PACKET_SIZE);
+    }
+
+    /**
+     * @param capacity   packets each inbox holds before it grows
+     * @param packetSize largest packet either end will send
+     */
+    public static LoopbackTransport[] createPair(int capacity, int packetSize) {
+        final LoopbackTransport a = new LoopbackTransport(capacity, packetSize);
+        final LoopbackTransport b = new LoopbackTransport(capacity, packetSize);
+        a.peer = b;
+        b.peer = a;
+        return new LoopbackTransport[] { a, b };
+    }
+
+    @Override
+    public void send(byte[] data, int length) {
+        peer.deliver(data, length);
+    }
+
+    @Override
+    public synchronized int receive(byte[] data) {
+        if (size == 0) {
+            return 0;
+        }
+        final int length = lengths[head];
+        System.arraycopy(slots[head], 0, data, 0, length);
+        head = (head + 1) % slots.length;
+        --size;
+        return length;
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private synchronized void deliver(byte[] data, int length) {
+        if (length > packetSize) {
+            throw new IllegalArgumentException("Packet of " + length + " bytes is larger than " + packetSize);
+        }
+        if (size == slots.length) {
+            grow();
+        }
+        final int tail = (head + size) % slots.length;
+        System.arraycopy(data, 0, slots[tail], 0, length);
+        lengths[tail] = length;
+        ++size;
+    }
+
+    private void grow() {
+        final int capacity = slots.length * 2;
+        final byte[][] newSlots   = new byte[capacity][];
+        final int[]    newLengths = new int[capacity];
+        for (int i = 0; i < size; ++i) {
+            newSlots[i]   = slots[(head + i) % slots.length];
+            newLengths[i] = lengths[(head + i) % slots.length];
+        }
+        for (int i = size; i < capacity; ++i) {
+            newSlots[i] = new byte[packetSize];
+        }
+        slots   = newSlots;
+        lengths = newLengths;
+        head    = 0;
+    }
+
+}
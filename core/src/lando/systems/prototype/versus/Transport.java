@@ -0,0 +1,21 @@
+package lando.systems.prototype.versus;
+
+/**
+ * Carries lockstep packets between two sessions.  Packets arrive whole, in
+ * order and exactly once, so a reliable stream or an in-process queue both
+ * work.  Neither call waits on the other side.
+ */
+public interface Transport {
+
+    /**
+     * Send the first length bytes of data, which are copied before returning
+     */
+    public void send(byte[] data, int length);
+
+    /**
+     * Copy the oldest received packet into data and return its length, or
+     * return 0 if nothing has arrived
+     */
+    public int receive(byte[] data);
+
+}
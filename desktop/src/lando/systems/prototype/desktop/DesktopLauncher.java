@@ -2,15 +2,45 @@ package lando.systems.prototype.desktop;
 
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
+import com.badlogic.gdx.utils.TimeUtils;
+import lando.systems.prototype.LaunchOptions;
+import lando.systems.prototype.Layout;
+import lando.systems.prototype.ModelConfig;
 import lando.systems.prototype.Prototype;
-import lando.systems.prototype.View;
 
 public class DesktopLauncher {
 	public static void main (String[] arg) {
 		LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
-		config.width     = View.VIEW_WIDTH;
-		config.height    = View.VIEW_HEIGHT;
+		config.width     = Layout.VIEW_WIDTH;
+		config.height    = Layout.VIEW_HEIGHT;
 		config.resizable = false;
-		new LwjglApplication(new Prototype(), config);
+
+		// Usage: DesktopLauncher [--blizzard DROP_DELAY LANES] [--seed SEED] [--record FILE] [--profile FILE] [--threaded]
+		ModelConfig   modelConfig = new ModelConfig();
+		LaunchOptions options     = new LaunchOptions();
+		Long          seed        = null;
+		options.launchMillis = TimeUtils.millis();
+		for (int i = 0; i < arg.length; ++i) {
+			if ("--blizzard".equals(arg[i]) && i + 2 < arg.length) {
+				modelConfig = ModelConfig.blizzard(Float.parseFloat(arg[i + 1]), Integer.parseInt(arg[i + 2]));
+				i += 2;
+			}
+			else if ("--seed".equals(arg[i]) && i + 1 < arg.length) {
+				seed = Long.parseLong(arg[++i]);
+			}
+			else if ("--record".equals(arg[i]) && i + 1 < arg.length) {
+				options.recordPath = arg[++i];
+			}
+			else if ("--profile".equals(arg[i]) && i + 1 < arg.length) {
+				options.profilePath = arg[++i];
+			}
+			else if ("--threaded".equals(arg[i])) {
+				options.threadedSim = true;
+			}
+		}
+		if (seed != null) {
+			modelConfig.seed = seed;
+		}
+		new LwjglApplication(new Prototype(modelConfig, options), config);
 	}
 }
@@ -0,0 +1,205 @@
+package lando.systems.prototype.desktop;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Graphics;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import lando.systems.prototype.Block;
+import lando.systems.prototype.BlockField;
+import lando.systems.prototype.BlockType;
+import lando.systems.prototype.DroppingBlocks;
+import lando.systems.prototype.Effects;
+import lando.systems.prototype.InPlayBlocks;
+import lando.systems.prototype.Layout;
+import lando.systems.prototype.Model;
+import lando.systems.prototype.ModelConfig;
+import lando.systems.prototype.RenderSnapshot;
+import lando.systems.prototype.RenderStats;
+import lando.systems.prototype.Simulation;
+import lando.systems.prototype.View;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+
+/**
+ * Draws a full field plus a number of in-play blocks and effects through the
+ * real View, SpriteBatch and SpriteCache on a fake GL context that only
+ * counts calls, then checks the frame stayed within a draw call budget.
+ * Exits with status 1 if any frame goes over, or if the View's own counters
+ * disagree with the draw calls GL saw, so it can run as a build step.
+ *
+ * Every sprite comes from one texture, as they do from the packed atlas, so
+ * a frame should cost one draw for the cached field and one batch flush.
+ *
+ * Usage: RenderBudgetCheck [--blocks N] [--budget N]
+ */
+public class RenderBudgetCheck {
+
+    public static final int DEFAULT_BLOCKS = 512;
+    public static final int DEFAULT_BUDGET = 2;
+
+    private static final int         FRAMES = 3;
+    private static final BlockType[] TYPES  = BlockType.values();
+
+    public static void main(String[] args) {
+        int numBlocks = DEFAULT_BLOCKS;
+        int budget    = DEFAULT_BUDGET;
+        for (int i = 0; i < args.length; ++i) {
+            if      (i + 1 >= args.length)       throw new IllegalArgumentException("Missing value for '" + args[i] + "'");
+            else if ("--blocks".equals(args[i])) numBlocks = Integer.parseInt(args[++i]);
+            else if ("--budget".equals(args[i])) budget    = Integer.parseInt(args[++i]);
+            else throw new IllegalArgumentException("Unknown option '" + args[i] + "'");
+        }
+
+        GdxNativesLoader.load();
+        final CountingGL gl = new CountingGL();
+        Gdx.gl       = mock(GL20.class, gl);
+        Gdx.gl20     = Gdx.gl;
+        Gdx.graphics = mock(Graphics.class, new Defaults());
+        Gdx.app      = mock(Application.class, new Defaults());
+
+        // One texture split into regions, like the atlas
+        final Pixmap pixmap = new Pixmap(2 * Block.SIZE, Block.SIZE, Pixmap.Format.RGBA8888);
+        pixmap.setColor(1, 1, 1, 1);
+        pixmap.fill();
+        final Texture texture = new Texture(pixmap);
+        pixmap.dispose();
+        final View view = new View(new TextureRegion(texture, 0,          0, Block.SIZE, Block.SIZE),
+                                   new TextureRegion(texture, Block.SIZE, 0, Block.SIZE, Block.SIZE),
+                                   new TextureRegion(texture, 0,          0, 1,          1));
+
+        final Model          model    = createModel(numBlocks);
+        final RenderSnapshot snapshot = new RenderSnapshot();
+        snapshot.capture(model, 1);
+
+        boolean failed = false;
+        for (int frame = 0; frame < FRAMES; ++frame) {
+            gl.reset();
+            view.render(snapshot);
+            final RenderStats stats = view.getStats();
+            final boolean overBudget = stats.getDrawCalls() > budget;
+            final boolean mismatched = stats.getDrawCalls() != gl.drawCalls;
+            System.out.printf("frame %d: %s; GL saw %d draw calls, %d texture binds%s%s%n",
+                              frame, stats, gl.drawCalls, gl.textureBinds,
+                              overBudget ? ", OVER BUDGET" : "",
+                              mismatched ? ", COUNTS DISAGREE" : "");
+            failed |= overBudget || mismatched;
+        }
+        System.out.printf("%d blocks in play, %d effects, budget %d draw calls: %s%n",
+                          model.getNumBlocksInPlay(), snapshot.getNumEffects(), budget, failed ? "FAILED" : "ok");
+
+        view.dispose();
+        texture.dispose();
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private static Model createModel(int numBlocks) {
+        final ModelConfig config = ModelConfig.blizzard(ModelConfig.DEFAULT_DROP_DELAY, 4);
+        config.seed = 1;
+        final Model model = new Model(config);
+
+        // Full field with no runs, neighbours differ by 1 down and 2 across
+        final BlockField field = model.getBlockField();
+        for (int row = 0; row < BlockField.FIELD_HEIGHT; ++row) {
+            for (int col = 0; col < BlockField.FIELD_WIDTH; ++col) {
+                field.getBlocks()[row][col].type = TYPES[(row + 2 * col) % BlockType.NUM_BLOCKS.ordinal()];
+            }
+        }
+        field.markDirty();
+
+        // Half dropping, spread down their path oldest first, half flung at the field
+        final DroppingBlocks dropping = model.getDroppingBlocks();
+        final InPlayBlocks   flinging = model.getFlingingBlocks();
+        final int numDropping = numBlocks / 2;
+        for (int i = 0; i < numDropping; ++i) {
+            final double spawnTime = -dropping.getLifetime() * (numDropping - i) / numDropping;
+            dropping.add(TYPES[i % BlockType.NUM_BLOCKS.ordinal()], i % config.numLanes, spawnTime);
+        }
+        for (int i = numDropping; i < numBlocks; ++i) {
+            flinging.add(TYPES[i % BlockType.NUM_BLOCKS.ordinal()],
+                         (i * 7) % Layout.VIEW_WIDTH,
+                         BlockField.FIELD_START_Y + (i % BlockField.FIELD_HEIGHT) * Block.SIZE);
+        }
+
+        // A quarter as many bounces, each drawn as one more sprite
+        final Effects effects = model.getEffects();
+        for (int i = 0; i < numBlocks / 4; ++i) {
+            effects.bounced(TYPES[i % BlockType.NUM_BLOCKS.ordinal()], BlockField.FIELD_START_X, Layout.VIEW_HEIGHT / 2);
+        }
+        model.tween().update(Simulation.TIMESTEP);
+        return model;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T mock(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    /**
+     * Returns zero, false, an empty string or null for anything called, with
+     * identity equality so mocks work as map keys
+     */
+    private static class Defaults implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getDeclaringClass() == Object.class) {
+                if ("equals".equals(method.getName()))   return proxy == args[0];
+                if ("hashCode".equals(method.getName())) return System.identityHashCode(proxy);
+                return "mock";
+            }
+            final Class<?> type = method.getReturnType();
+            if (type == int.class)     return 0;
+            if (type == long.class)    return 0L;
+            if (type == float.class)   return 0f;
+            if (type == boolean.class) return false;
+            if (type == String.class)  return "";
+            return null;
+        }
+    }
+
+    /**
+     * GL20 that hands out object ids, passes every shader compile and link,
+     * and counts draw calls and texture binds
+     */
+    private static class CountingGL extends Defaults {
+        int drawCalls;
+        int textureBinds;
+        int nextId = 1;
+
+        void reset() {
+            drawCalls    = 0;
+            textureBinds = 0;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            final String name = method.getName();
+            if ("glDrawElements".equals(name) || "glDrawArrays".equals(name)) {
+                ++drawCalls;
+            } else if ("glBindTexture".equals(name)) {
+                ++textureBinds;
+            } else if ((name.startsWith("glCreate") || name.startsWith("glGen")) && method.getReturnType() == int.class) {
+                return nextId++;
+            } else if ("glGetShaderiv".equals(name) || "glGetProgramiv".equals(name)) {
+                final int pname = (Integer) args[1];
+                if (pname == GL20.GL_COMPILE_STATUS || pname == GL20.GL_LINK_STATUS) {
+                    ((IntBuffer) args[2]).put(0, 1);
+                }
+            }
+            return super.invoke(proxy, method, args);
+        }
+    }
+
+}
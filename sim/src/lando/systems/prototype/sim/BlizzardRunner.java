@@ -0,0 +1,86 @@
+package lando.systems.prototype.sim;
+
+import lando.systems.prototype.Model;
+import lando.systems.prototype.ModelConfig;
+import lando.systems.prototype.Simulation;
+
+/**
+ * Finds the largest number of in-play blocks that blizzard mode can simulate
+ * within a 60 Hz frame.  The drop delay is halved each round, and each round
+ * runs until the in-play population is steady before timing it.
+ *
+ * Each tick is a full Simulation.call(), the same advance the game runs,
+ * including capturing and publishing the render snapshot, which costs time
+ * per block even though the model's dropping blocks don't.  Drawing is not
+ * included.  A round stops as soon as the population passes the block cap,
+ * so a cheap tick can't run the search out of memory.
+ *
+ * Usage: BlizzardRunner [--lanes N] [--start-delay SECONDS] [--max-blocks N]
+ */
+public class BlizzardRunner {
+
+    public static final int DEFAULT_MAX_BLOCKS = 1 << 20;
+
+    private static final double FRAME_NANOS   = 1e9 / 60;
+    // Long enough for a block to fall from the queue to below the screen
+    private static final int    SETTLE_TICKS  = 60 * 8;
+    private static final int    MEASURE_TICKS = 120;
+
+    public static void main(String[] args) {
+        int   numLanes   = 4;
+        float startDelay = 0.1f;
+        int   maxBlocks  = DEFAULT_MAX_BLOCKS;
+        for (int i = 0; i < args.length; ++i) {
+            if      (i + 1 >= args.length)            throw new IllegalArgumentException("Missing value for '" + args[i] + "'");
+            else if ("--lanes".equals(args[i]))       numLanes   = Integer.parseInt(args[++i]);
+            else if ("--start-delay".equals(args[i])) startDelay = Float.parseFloat(args[++i]);
+            else if ("--max-blocks".equals(args[i]))  maxBlocks  = Integer.parseInt(args[++i]);
+            else throw new IllegalArgumentException("Unknown option '" + args[i] + "'");
+        }
+
+        int     maxSustained = 0;
+        boolean capped       = false;
+        for (float dropDelay = startDelay; dropDelay > 1e-7f && !capped; dropDelay /= 2) {
+            final Model      model      = new Model(ModelConfig.blizzard(dropDelay, numLanes));
+            final Simulation simulation = new Simulation(model);
+            for (int i = 0; i < SETTLE_TICKS && !capped; ++i) {
+                tick(simulation);
+                capped = model.getNumBlocksInPlay() > maxBlocks;
+            }
+            if (capped) {
+                System.out.printf("drop delay %.7f s: more than %d blocks in play, stopping%n", dropDelay, maxBlocks);
+                break;
+            }
+
+            final long start = System.nanoTime();
+            for (int i = 0; i < MEASURE_TICKS; ++i) {
+                tick(simulation);
+            }
+            final double nanosPerTick = (System.nanoTime() - start) / (double) MEASURE_TICKS;
+            final int    numBlocks    = model.getNumBlocksInPlay();
+            System.out.printf("drop delay %.7f s: %7d blocks in play, %8.3f ms per tick%n",
+                              dropDelay, numBlocks, nanosPerTick / 1e6);
+
+            if (nanosPerTick > FRAME_NANOS) {
+                break;
+            }
+            maxSustained = Math.max(maxSustained, numBlocks);
+        }
+        System.out.printf("max blocks sustained at 60 Hz with %d lanes: %d%s%n", numLanes, maxSustained,
+                          capped ? " (hit the " + maxBlocks + " block cap first, the real limit is higher)" : "");
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    /**
+     * Advance one tick the way the game does, ending with a published snapshot
+     */
+    private static void tick(Simulation simulation) {
+        simulation.addFrameTime(Simulation.TIMESTEP);
+        simulation.handOff();
+        simulation.call();
+    }
+
+}
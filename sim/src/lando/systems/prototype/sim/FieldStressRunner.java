@@ -0,0 +1,81 @@
+package lando.systems.prototype.sim;
+
+import com.badlogic.gdx.math.RandomXS128;
+import lando.systems.prototype.BitBoard;
+import lando.systems.prototype.BlockType;
+import lando.systems.prototype.ChunkedField;
+
+/**
+ * Lands random blocks on ChunkedFields of growing size to check that the
+ * cost of a landing and the memory held follow the occupied area rather
+ * than the board size.  Landings go into a band of rows the same height at
+ * every size, and the field starts over whenever a landing would take a row
+ * past --fill blocks, so the occupied area is the same and only the board
+ * size changes between runs.
+ *
+ * Usage: FieldStressRunner [--landings N] [--rows N] [--fill N] [--seed N] [--max-size N]
+ */
+public class FieldStressRunner {
+
+    public static final int DEFAULT_LANDINGS = 1000000;
+    public static final int DEFAULT_ROWS     = 64;
+    public static final int DEFAULT_FILL     = 12;
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private static final BlockType[] TYPES = BlockType.values();
+
+    public static void main(String[] args) {
+        int  numLandings = DEFAULT_LANDINGS;
+        int  numRows     = DEFAULT_ROWS;
+        int  fill        = DEFAULT_FILL;
+        int  maxSize     = DEFAULT_MAX_SIZE;
+        long seed        = 1;
+        for (int i = 0; i < args.length; ++i) {
+            if      (i + 1 >= args.length)         throw new IllegalArgumentException("Missing value for '" + args[i] + "'");
+            else if ("--landings".equals(args[i])) numLandings = Integer.parseInt(args[++i]);
+            else if ("--rows".equals(args[i]))     numRows     = Integer.parseInt(args[++i]);
+            else if ("--fill".equals(args[i]))     fill        = Integer.parseInt(args[++i]);
+            else if ("--max-size".equals(args[i])) maxSize     = Integer.parseInt(args[++i]);
+            else if ("--seed".equals(args[i]))     seed        = Long.parseLong(args[++i]);
+            else throw new IllegalArgumentException("Unknown option '" + args[i] + "'");
+        }
+
+        for (int size = ChunkedField.CHUNK_SIZE; size <= maxSize; size *= 4) {
+            run(new ChunkedField(size, size), Math.min(numRows, size), Math.min(fill, size), numLandings, seed);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private static void run(ChunkedField field, int numRows, int fill, int numLandings, long seed) {
+        final RandomXS128 random = new RandomXS128(seed);
+        long landed    = 0;
+        long cleared   = 0;
+        long restarts  = 0;
+        long maxMemory = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < numLandings; ++i) {
+            final int row = random.nextInt(numRows);
+            if (field.getRowCount(row) >= fill) {
+                field.clear();
+                ++restarts;
+            }
+            if (field.land(row, TYPES[random.nextInt(BitBoard.NUM_TYPES)]) >= 0) {
+                ++landed;
+                cleared += field.getCascadeStats().getCellsCleared();
+            }
+            maxMemory = Math.max(maxMemory, field.getMemoryEstimate());
+        }
+        final double elapsedSecs = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%5d x %-5d %d landed, %d cleared, %d restarts in %.3f secs: %.0f ns/landing%n",
+                          field.getWidth(), field.getHeight(), landed, cleared, restarts,
+                          elapsedSecs, elapsedSecs * 1e9 / landed);
+        System.out.printf("              %d blocks in %d chunks, peak %.1f KB (%.1f MB if dense)%n",
+                          field.getNumOccupied(), field.getNumChunks(), maxMemory / 1024.0,
+                          field.getWidth() * (double) field.getHeight() / (1024 * 1024));
+    }
+
+}
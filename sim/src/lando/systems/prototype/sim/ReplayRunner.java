@@ -0,0 +1,56 @@
+package lando.systems.prototype.sim;
+
+import lando.systems.prototype.replay.Recording;
+import lando.systems.prototype.replay.Replayer;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Replays a recorded session headlessly at full speed and checks that the
+ * field ends up the same as it did when it was recorded.  Exits with status
+ * 1 if the field differs.
+ *
+ * Usage: ReplayRunner FILE
+ */
+public class ReplayRunner {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: ReplayRunner FILE");
+        }
+
+        final Recording recording = Recording.decode(readFile(new File(args[0])));
+        if (!recording.hasFinalField()) {
+            throw new IllegalArgumentException("Recording '" + args[0] + "' has no final field to verify");
+        }
+
+        final Replayer replayer = new Replayer(recording);
+        final long start = System.nanoTime();
+        final boolean matches = replayer.run();
+        final double elapsedSecs = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("replayed seed %d: %d ticks (%.1f simulated secs, %d flings) in %.3f secs: %.0f ticks/sec%n",
+                          recording.getSeed(), recording.getNumTicks(),
+                          recording.getNumTicks() * (double) recording.getTimestep(),
+                          recording.getNumFlings(), elapsedSecs, recording.getNumTicks() / elapsedSecs);
+        System.out.println(matches ? "final field matches" : "FINAL FIELD DIFFERS");
+        if (!matches) {
+            System.exit(1);
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        final byte[] bytes = new byte[(int) file.length()];
+        final DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            in.readFully(bytes);
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
+}
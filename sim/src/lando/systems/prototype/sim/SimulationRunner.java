@@ -0,0 +1,201 @@
+package lando.systems.prototype.sim;
+
+import lando.systems.prototype.Block;
+import lando.systems.prototype.DroppingBlocks;
+import lando.systems.prototype.GameSnapshot;
+import lando.systems.prototype.Histogram;
+import lando.systems.prototype.Model;
+import lando.systems.prototype.Profiler;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+/**
+ * Steps a Model with a fixed timestep as fast as the CPU allows, without
+ * loading a libGDX backend or the View.  With --checkpoint-every, a
+ * GameSnapshot is saved every N ticks into a reused buffer, and the last one
+ * is restored into a fresh Model at the end to check it resumes the game.
+ *
+ * Usage: SimulationRunner [--ticks N] [--step SECONDS] [--fling-every N] [--checkpoint-every N] [--profile]
+ */
+public class SimulationRunner {
+
+    public static final float DEFAULT_TIMESTEP       = 1f / 60f;
+    public static final long  DEFAULT_TICKS          = 1000000;
+    public static final int   DEFAULT_FLING_INTERVAL = 30;
+
+    private final Model model;
+    private final float timestep;
+    private final int   flingInterval;
+
+    private long ticks;
+    private long flings;
+    private long elapsedNanos;
+
+    private int        checkpointInterval;
+    private ByteBuffer checkpoint;
+    private long       checkpoints;
+    private long       checkpointNanos;
+    private long       checkpointHash;
+    private double     checkpointTime;
+
+    /**
+     * @param flingInterval fling the lowest dropping block every this many ticks,
+     *                      or never if less than one
+     */
+    public SimulationRunner(Model model, float timestep, int flingInterval) {
+        this.model         = model;
+        this.timestep      = timestep;
+        this.flingInterval = flingInterval;
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    public void step() {
+        if (flingInterval > 0 && ticks % flingInterval == 0) {
+            flingLowestBlock();
+        }
+        model.update(timestep);
+        ++ticks;
+        if (checkpointInterval > 0 && ticks % checkpointInterval == 0) {
+            saveCheckpoint();
+        }
+    }
+
+    public void run(long numTicks) {
+        final long start = System.nanoTime();
+        for (long i = 0; i < numTicks; ++i) {
+            step();
+        }
+        elapsedNanos += System.nanoTime() - start;
+    }
+
+    public long   getTicks()         { return ticks; }
+    public long   getFlings()        { return flings; }
+    public double getElapsedSecs()   { return elapsedNanos / 1e9; }
+    public double getSimulatedSecs() { return ticks * (double) timestep; }
+    public double getTicksPerSec()   { return (elapsedNanos == 0) ? 0 : ticks / getElapsedSecs(); }
+
+    /**
+     * Save a snapshot every this many ticks, or never if less than one
+     */
+    public void setCheckpointInterval(int checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    public long   getCheckpoints()        { return checkpoints; }
+    public double getCheckpointMicros()   { return (checkpoints == 0) ? 0 : checkpointNanos / 1e3 / checkpoints; }
+    public int    getCheckpointSize()     { return (checkpoint == null) ? 0 : checkpoint.position(); }
+
+    /**
+     * Restore the most recent checkpoint into another model, returns the nanoseconds it took
+     */
+    public long restoreCheckpoint(Model target) {
+        final ByteBuffer buffer = checkpoint.duplicate();
+        buffer.flip();
+        final long start = System.nanoTime();
+        GameSnapshot.read(buffer, target);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Returns true if the model is where this runner's model was at the most recent checkpoint
+     */
+    public boolean matchesCheckpoint(Model target) {
+        return target.getBlockField().getHash() == checkpointHash && target.getTime() == checkpointTime;
+    }
+
+    public static void main(String[] args) {
+        long  numTicks      = DEFAULT_TICKS;
+        float timestep      = DEFAULT_TIMESTEP;
+        int   flingInterval = DEFAULT_FLING_INTERVAL;
+        int   checkInterval = 0;
+        Profiler profiler   = null;
+        for (int i = 0; i < args.length; ++i) {
+            if      ("--profile".equals(args[i]))          profiler      = new Profiler();
+            else if (i + 1 >= args.length)                 throw new IllegalArgumentException("Missing value for '" + args[i] + "'");
+            else if ("--ticks".equals(args[i]))            numTicks      = Long.parseLong(args[++i]);
+            else if ("--step".equals(args[i]))             timestep      = Float.parseFloat(args[++i]);
+            else if ("--fling-every".equals(args[i]))      flingInterval = Integer.parseInt(args[++i]);
+            else if ("--checkpoint-every".equals(args[i])) checkInterval = Integer.parseInt(args[++i]);
+            else throw new IllegalArgumentException("Unknown option '" + args[i] + "'");
+        }
+
+        final long createStart = System.nanoTime();
+        final Model model = new Model();
+        final SimulationRunner runner = new SimulationRunner(model, timestep, flingInterval);
+        runner.setCheckpointInterval(checkInterval);
+        final double createMillis = (System.nanoTime() - createStart) / 1e6;
+        System.out.printf("startup: model created in %.2f ms, jvm uptime %d ms%n",
+                          createMillis, ManagementFactory.getRuntimeMXBean().getUptime());
+
+        if (profiler != null) {
+            profiler.setEnabled(true);
+            model.setProfiler(profiler);
+        }
+
+        runner.run(numTicks);
+        System.out.printf("ran %d ticks (%.1f simulated secs, %d flings) in %.3f secs: %.0f ticks/sec%n",
+                          runner.getTicks(), runner.getSimulatedSecs(), runner.getFlings(),
+                          runner.getElapsedSecs(), runner.getTicksPerSec());
+
+        if (runner.getCheckpoints() > 0) {
+            final Model  restored  = new Model();
+            final double restoreUs = runner.restoreCheckpoint(restored) / 1e3;
+            System.out.printf("checkpoints: %d saved, %.2f us each, %d bytes, last restored in %.2f us, match %b%n",
+                              runner.getCheckpoints(), runner.getCheckpointMicros(), runner.getCheckpointSize(),
+                              restoreUs, runner.matchesCheckpoint(restored));
+        }
+
+        if (profiler != null) {
+            System.out.println("per call p50 / p99 / max:");
+            for (int phase = Profiler.DROP; phase < Profiler.NUM_PHASES; ++phase) {
+                final Histogram histogram = profiler.getHistogram(phase);
+                System.out.printf("  %-12s %8.2f / %8.2f / %8.2f us (%d calls)%n",
+                                  Profiler.PHASE_NAMES[phase],
+                                  histogram.getPercentile(0.5f) / 1e3,
+                                  histogram.getPercentile(0.99f) / 1e3,
+                                  histogram.getMax() / 1e3,
+                                  histogram.getCount());
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private void saveCheckpoint() {
+        final long start = System.nanoTime();
+        final int  size  = GameSnapshot.getSize(model);
+        if (checkpoint == null || checkpoint.capacity() < size) {
+            checkpoint = ByteBuffer.allocate(size * 2);
+        }
+        checkpoint.clear();
+        GameSnapshot.write(model, checkpoint);
+        checkpointNanos += System.nanoTime() - start;
+        checkpointHash = model.getBlockField().getHash();
+        checkpointTime = model.getTime();
+        ++checkpoints;
+    }
+
+    private void flingLowestBlock() {
+        // Every block falls at the same speed, so the lowest is the oldest
+        final DroppingBlocks dropping = model.getDroppingBlocks();
+        final double time = model.getTime();
+        int lowest = -1;
+        for (int i = 0; i < dropping.size(); ++i) {
+            if (lowest < 0 || dropping.getSpawnTime(i) < dropping.getSpawnTime(lowest)) {
+                lowest = i;
+            }
+        }
+        if (lowest >= 0) {
+            model.handleFling(dropping.getX(lowest, time) + Block.SIZE / 2,
+                              dropping.getY(lowest, time) + Block.SIZE / 2);
+            ++flings;
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package lando.systems.prototype.sim;
+
+import lando.systems.prototype.versus.Transport;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Transport over a TCP socket, each packet written as a short length and its
+ * bytes.  A daemon thread reads packets as they arrive so receive() never
+ * blocks, and Nagle's algorithm is off so small packets go out right away.
+ */
+public class SocketTransport implements Transport {
+
+    private final Socket           socket;
+    private final DataOutputStream out;
+    private final ConcurrentLinkedQueue<byte[]> received = new ConcurrentLinkedQueue<byte[]>();
+
+    private volatile IOException readError;
+
+    public SocketTransport(final Socket socket) throws IOException {
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+        this.out = new DataOutputStream(socket.getOutputStream());
+
+        final DataInputStream in = new DataInputStream(socket.getInputStream());
+        final Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        final byte[] data = new byte[in.readUnsignedShort()];
+                        in.readFully(data);
+                        received.add(data);
+                    }
+                } catch (IOException e) {
+                    if (!socket.isClosed()) {
+                        readError = e;
+                    }
+                }
+            }
+        }, "SocketTransport-" + socket.getPort());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    public static SocketTransport connect(String host, int port) throws IOException {
+        return new SocketTransport(new Socket(host, port));
+    }
+
+    /**
+     * Wait for one connection on the server socket
+     */
+    public static SocketTransport accept(ServerSocket server) throws IOException {
+        return new SocketTransport(server.accept());
+    }
+
+    @Override
+    public void send(byte[] data, int length) {
+        try {
+            out.writeShort(length);
+            out.write(data, 0, length);
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to send to " + socket.getRemoteSocketAddress(), e);
+        }
+    }
+
+    @Override
+    public int receive(byte[] data) {
+        final byte[] packet = received.poll();
+        if (packet == null) {
+            if (readError != null) {
+                throw new IllegalStateException("Lost connection to " + socket.getRemoteSocketAddress(), readError);
+            }
+            return 0;
+        }
+        System.arraycopy(packet, 0, data, 0, packet.length);
+        return packet.length;
+    }
+
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
+}
@@ -0,0 +1,235 @@
+package lando.systems.prototype.sim;
+
+import com.badlogic.gdx.math.RandomXS128;
+import lando.systems.prototype.Bot;
+import lando.systems.prototype.DroppingBlocks;
+import lando.systems.prototype.GameStats;
+import lando.systems.prototype.Model;
+import lando.systems.prototype.ModelConfig;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays many independent games at once on a ForkJoinPool and adds up their
+ * stats.  Game i uses seed baseSeed + i for both its block sequence and its
+ * bot, so a batch gives the same totals however it is split across threads.
+ * Every game owns its Model and Random, nothing mutable is shared.
+ *
+ * The bot flings a random dropping block on average once every flingInterval
+ * ticks.  With --scaling the same batch is run at every power of two thread
+ * count up to the number of cores, to check that throughput scales.
+ *
+ * With --bot each game is played by a searching Bot of the given depth
+ * instead, to compare its play against random flinging.
+ *
+ * Usage: TournamentRunner [--games N] [--ticks N] [--seed N] [--fling-every N]
+ *                         [--bot DEPTH] [--threads N] [--scaling]
+ */
+public class TournamentRunner {
+
+    public static final int   DEFAULT_GAMES          = 1000;
+    public static final int   DEFAULT_TICKS          = 36000;
+    public static final int   DEFAULT_FLING_INTERVAL = 30;
+    public static final float TIMESTEP               = 1f / 60f;
+
+    // Games per leaf task, enough work to hide the cost of forking
+    private static final int GAMES_PER_TASK = 4;
+
+    private final ModelConfig config;
+    private final int         numTicks;
+    private final int         flingInterval;
+    private final int         botDepth;
+
+    // Cascade cache lookups made by every bot, gathered as games finish
+    private final AtomicLong cacheHits   = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    /**
+     * @param config        settings shared by every game, each game gets its own seed
+     * @param flingInterval average ticks between bot flings, or never if less than one
+     */
+    public TournamentRunner(ModelConfig config, int numTicks, int flingInterval) {
+        this(config, numTicks, flingInterval, 0);
+    }
+
+    /**
+     * @param botDepth search depth of a Bot that plays each game, or random flings if less than one
+     */
+    public TournamentRunner(ModelConfig config, int numTicks, int flingInterval, int botDepth) {
+        this.config        = config;
+        this.numTicks      = numTicks;
+        this.flingInterval = flingInterval;
+        this.botDepth      = botDepth;
+    }
+
+    // -------------------------------------------------------------------------
+    // Public interface
+    // -------------------------------------------------------------------------
+
+    /**
+     * Play games with seeds baseSeed to baseSeed + numGames - 1 and return their summed stats
+     */
+    public GameStats run(ForkJoinPool pool, long baseSeed, int numGames) {
+        return pool.invoke(new Games(this, baseSeed, 0, numGames));
+    }
+
+    public GameStats playGame(long seed) {
+        final ModelConfig gameConfig = new ModelConfig();
+        gameConfig.dropDelay      = config.dropDelay;
+        gameConfig.numLanes       = config.numLanes;
+        gameConfig.inPlayCapacity = config.inPlayCapacity;
+        gameConfig.seed           = seed;
+        gameConfig.effects        = false;
+
+        final Model model = new Model(gameConfig);
+        if (botDepth > 0) {
+            final Bot bot = new Bot(botDepth);
+            for (int tick = 0; tick < numTicks; ++tick) {
+                if (bot.update(model)) {
+                    model.handleFling(bot.getFlingX(), bot.getFlingY());
+                }
+                model.update(TIMESTEP);
+            }
+            cacheHits.addAndGet(bot.getCache().getHits());
+            cacheMisses.addAndGet(bot.getCache().getMisses());
+            return model.getStats();
+        }
+
+        final RandomXS128 bot = new RandomXS128(~seed);
+        for (int tick = 0; tick < numTicks; ++tick) {
+            if (flingInterval > 0 && bot.nextInt(flingInterval) == 0) {
+                flingRandomBlock(model, bot);
+            }
+            model.update(TIMESTEP);
+        }
+        return model.getStats();
+    }
+
+    public long getCacheHits()   { return cacheHits.get(); }
+    public long getCacheMisses() { return cacheMisses.get(); }
+
+    public static void main(String[] args) {
+        int     numGames      = DEFAULT_GAMES;
+        int     numTicks      = DEFAULT_TICKS;
+        long    baseSeed      = 1;
+        int     flingInterval = DEFAULT_FLING_INTERVAL;
+        int     botDepth      = 0;
+        int     numThreads    = Runtime.getRuntime().availableProcessors();
+        boolean scaling       = false;
+        for (int i = 0; i < args.length; ++i) {
+            if      ("--scaling".equals(args[i]))     scaling       = true;
+            else if (i + 1 >= args.length)            throw new IllegalArgumentException("Missing value for '" + args[i] + "'");
+            else if ("--games".equals(args[i]))       numGames      = Integer.parseInt(args[++i]);
+            else if ("--ticks".equals(args[i]))       numTicks      = Integer.parseInt(args[++i]);
+            else if ("--seed".equals(args[i]))        baseSeed      = Long.parseLong(args[++i]);
+            else if ("--fling-every".equals(args[i])) flingInterval = Integer.parseInt(args[++i]);
+            else if ("--bot".equals(args[i]))         botDepth      = Integer.parseInt(args[++i]);
+            else if ("--threads".equals(args[i]))     numThreads    = Integer.parseInt(args[++i]);
+            else throw new IllegalArgumentException("Unknown option '" + args[i] + "'");
+        }
+
+        final TournamentRunner runner = new TournamentRunner(new ModelConfig(), numTicks, flingInterval, botDepth);
+        if (!scaling) {
+            report(runner, numThreads, baseSeed, numGames, 0);
+            return;
+        }
+
+        double baseGamesPerSec = 0;
+        for (int threads = 1; threads <= numThreads; threads *= 2) {
+            final double gamesPerSec = report(runner, threads, baseSeed, numGames, baseGamesPerSec);
+            if (threads == 1) {
+                baseGamesPerSec = gamesPerSec;
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private static double report(TournamentRunner runner, int threads, long baseSeed, int numGames,
+                                 double baseGamesPerSec) {
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        final long hitsBefore   = runner.getCacheHits();
+        final long missesBefore = runner.getCacheMisses();
+        final long start = System.nanoTime();
+        final GameStats stats = runner.run(pool, baseSeed, numGames);
+        final double elapsedSecs = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        final double gamesPerSec = numGames / elapsedSecs;
+        System.out.printf("%2d threads: %d games in %.3f secs, %.1f games/sec%s%n",
+                          threads, numGames, elapsedSecs, gamesPerSec,
+                          (baseGamesPerSec > 0) ? String.format(", %.2fx speedup", gamesPerSec / baseGamesPerSec) : "");
+        System.out.printf("  %s%n", stats);
+        System.out.printf("  per game: %.1f landed, %.1f cleared, %.2f chains of 2+%n",
+                          stats.getBlocksLanded() / (double) stats.getGames(),
+                          stats.getCellsCleared() / (double) stats.getGames(),
+                          countChains(stats, 2) / (double) stats.getGames());
+        final long hits   = runner.getCacheHits() - hitsBefore;
+        final long misses = runner.getCacheMisses() - missesBefore;
+        if (hits + misses > 0) {
+            System.out.printf("  cascade cache: %d hits, %d misses, %.1f%% hit rate%n",
+                              hits, misses, 100.0 * hits / (hits + misses));
+        }
+        return gamesPerSec;
+    }
+
+    private static long countChains(GameStats stats, int minDepth) {
+        long count = 0;
+        for (int depth = minDepth; depth <= GameStats.MAX_TRACKED_CHAIN; ++depth) {
+            count += stats.getChainCount(depth);
+        }
+        return count;
+    }
+
+    private static void flingRandomBlock(Model model, RandomXS128 bot) {
+        final DroppingBlocks dropping = model.getDroppingBlocks();
+        if (dropping.size() == 0) {
+            return;
+        }
+        final int    i    = bot.nextInt(dropping.size());
+        final double time = model.getTime();
+        model.handleFling(dropping.getX(i, time) + 1, dropping.getY(i, time) + 1);
+    }
+
+    /**
+     * Splits a range of game indices in half until it is small enough to play directly
+     */
+    private static class Games extends RecursiveTask<GameStats> {
+        private static final long serialVersionUID = 1L;
+
+        final TournamentRunner runner;
+        final long             baseSeed;
+        final int              first;
+        final int              count;
+
+        Games(TournamentRunner runner, long baseSeed, int first, int count) {
+            this.runner   = runner;
+            this.baseSeed = baseSeed;
+            this.first    = first;
+            this.count    = count;
+        }
+
+        @Override
+        protected GameStats compute() {
+            if (count <= GAMES_PER_TASK) {
+                final GameStats stats = new GameStats();
+                for (int i = first; i < first + count; ++i) {
+                    stats.add(runner.playGame(baseSeed + i));
+                }
+                return stats;
+            }
+
+            final int  half  = count / 2;
+            final Games left = new Games(runner, baseSeed, first, half);
+            left.fork();
+            final GameStats stats = new Games(runner, baseSeed, first + half, count - half).compute();
+            stats.add(left.join());
+            return stats;
+        }
+    }
+
+}
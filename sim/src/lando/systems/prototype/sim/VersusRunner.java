@@ -0,0 +1,208 @@
+package lando.systems.prototype.sim;
+
+import com.badlogic.gdx.math.RandomXS128;
+import lando.systems.prototype.BlockField;
+import lando.systems.prototype.BlockType;
+import lando.systems.prototype.DroppingBlocks;
+import lando.systems.prototype.GameSnapshot;
+import lando.systems.prototype.Model;
+import lando.systems.prototype.ModelConfig;
+import lando.systems.prototype.Simulation;
+import lando.systems.prototype.versus.LockstepSession;
+import lando.systems.prototype.versus.LoopbackTransport;
+import lando.systems.prototype.versus.Transport;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+
+/**
+ * Plays a versus game between two LockstepSessions on their own threads,
+ * connected in-process or through a socket on the loopback interface.
+ * Each player flings a random block of their own on average once every
+ * flingInterval ticks.  Reports stalls, checksum results and the bytes sent,
+ * next to what streaming both boards every tick would have cost.
+ *
+ * With --desync-at, player 1's copy of player 0's field is changed at that
+ * tick to check that the next checksum catches it.
+ *
+ * Usage: VersusRunner [--ticks N] [--seed N] [--fling-every N] [--delay N]
+ *                     [--checksum-every N] [--desync-at N] [--socket]
+ */
+public class VersusRunner {
+
+    public static final int DEFAULT_TICKS          = 36000;
+    public static final int DEFAULT_FLING_INTERVAL = 30;
+
+    private static final int FIELD_BYTES = BlockField.FIELD_WIDTH * BlockField.FIELD_HEIGHT / 2;
+
+    public static void main(String[] args) throws Exception {
+        int     numTicks         = DEFAULT_TICKS;
+        long    seed             = 1;
+        int     flingInterval    = DEFAULT_FLING_INTERVAL;
+        int     inputDelay       = LockstepSession.DEFAULT_INPUT_DELAY;
+        int     checksumInterval = LockstepSession.DEFAULT_CHECKSUM_INTERVAL;
+        int     desyncTick       = -1;
+        boolean socket           = false;
+        for (int i = 0; i < args.length; ++i) {
+            if      ("--socket".equals(args[i]))         socket           = true;
+            else if (i + 1 >= args.length)               throw new IllegalArgumentException("Missing value for '" + args[i] + "'");
+            else if ("--ticks".equals(args[i]))          numTicks         = Integer.parseInt(args[++i]);
+            else if ("--seed".equals(args[i]))           seed             = Long.parseLong(args[++i]);
+            else if ("--fling-every".equals(args[i]))    flingInterval    = Integer.parseInt(args[++i]);
+            else if ("--delay".equals(args[i]))          inputDelay       = Integer.parseInt(args[++i]);
+            else if ("--checksum-every".equals(args[i])) checksumInterval = Integer.parseInt(args[++i]);
+            else if ("--desync-at".equals(args[i]))      desyncTick       = Integer.parseInt(args[++i]);
+            else throw new IllegalArgumentException("Unknown option '" + args[i] + "'");
+        }
+
+        // Tween pools are global, and both sessions run at once
+        final ModelConfig config = new ModelConfig();
+        config.seed    = seed;
+        config.effects = false;
+
+        final Transport[] transports = new Transport[LockstepSession.NUM_PLAYERS];
+        ServerSocket server = null;
+        if (socket) {
+            server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            transports[1] = SocketTransport.connect(server.getInetAddress().getHostAddress(), server.getLocalPort());
+            transports[0] = SocketTransport.accept(server);
+        } else {
+            final LoopbackTransport[] pair = LoopbackTransport.createPair();
+            transports[0] = pair[0];
+            transports[1] = pair[1];
+        }
+
+        final Player[] players = new Player[LockstepSession.NUM_PLAYERS];
+        final Thread[] threads = new Thread[LockstepSession.NUM_PLAYERS];
+        final long start = System.nanoTime();
+        for (int p = 0; p < LockstepSession.NUM_PLAYERS; ++p) {
+            final LockstepSession session = new LockstepSession(config, p, transports[p], inputDelay, checksumInterval);
+            players[p] = new Player(session, numTicks, flingInterval, seed, (p == 1) ? desyncTick : -1);
+            threads[p] = new Thread(players[p], "Player-" + p);
+            threads[p].start();
+        }
+        for (int p = 0; p < LockstepSession.NUM_PLAYERS; ++p) {
+            threads[p].join();
+        }
+        final double elapsedSecs = (System.nanoTime() - start) / 1e9;
+
+        // Both sides are done, read the checksums for the last ticks that are still in flight
+        final long deadline = System.nanoTime() + 100000000L;
+        while (System.nanoTime() < deadline) {
+            for (int p = 0; p < LockstepSession.NUM_PLAYERS; ++p) {
+                if (players[p].error == null) {
+                    players[p].session.poll();
+                }
+            }
+            Thread.yield();
+        }
+
+        if (socket) {
+            ((SocketTransport) transports[0]).close();
+            ((SocketTransport) transports[1]).close();
+            server.close();
+        }
+
+        report(players, numTicks, elapsedSecs, socket);
+    }
+
+    // -------------------------------------------------------------------------
+    // Private implementation
+    // -------------------------------------------------------------------------
+
+    private static void report(Player[] players, int numTicks, double elapsedSecs, boolean socket) {
+        final double simSecs = numTicks * (double) Simulation.TIMESTEP;
+        System.out.printf("%d ticks (%.1f simulated secs) over %s in %.3f secs%n",
+                          numTicks, simSecs, socket ? "a loopback socket" : "an in-process loopback", elapsedSecs);
+        for (Player player : players) {
+            final LockstepSession session = player.session;
+            if (player.error != null) {
+                System.out.printf("player %d failed: %s%n", session.getLocalPlayer(), player.error);
+                continue;
+            }
+            final Model own = session.getModel(session.getLocalPlayer());
+            System.out.printf("player %d: %d flings, %d points, %d stalls, %d packets, %d bytes sent (%.1f bytes/sec), desync %s%n",
+                              session.getLocalPlayer(), player.flings, own.getScore().getPoints(), session.getStalls(),
+                              session.getPacketsSent(), session.getBytesSent(), session.getBytesSent() / simSecs,
+                              session.isDesynced() ? "at tick " + session.getDesyncTick() : "none");
+        }
+
+        final LockstepSession a = players[0].session;
+        final LockstepSession b = players[1].session;
+        System.out.printf("final checksums %016x / %016x, %s%n",
+                          a.getChecksum(), b.getChecksum(), (a.getChecksum() == b.getChecksum()) ? "in sync" : "out of sync");
+
+        // Streaming instead of lockstep would send both boards from each side every tick
+        final int ticksPerSec = Math.round(1 / Simulation.TIMESTEP);
+        final int stateBytes  = GameSnapshot.getSize(a.getModel(0)) + GameSnapshot.getSize(a.getModel(1));
+        System.out.printf("streaming both boards instead: %d bytes/sec for packed grids only, %d bytes/sec for full state%n",
+                          2 * FIELD_BYTES * ticksPerSec, stateBytes * ticksPerSec);
+    }
+
+    /**
+     * Runs one side of the game
+     */
+    private static class Player implements Runnable {
+        final LockstepSession session;
+        final int             numTicks;
+        final int             flingInterval;
+        final int             desyncTick;
+        final RandomXS128     random;
+
+        long             flings;
+        RuntimeException error;
+
+        Player(LockstepSession session, int numTicks, int flingInterval, long seed, int desyncTick) {
+            this.session       = session;
+            this.numTicks      = numTicks;
+            this.flingInterval = flingInterval;
+            this.desyncTick    = desyncTick;
+            this.random        = new RandomXS128(~seed ^ session.getLocalPlayer());
+        }
+
+        @Override
+        public void run() {
+            try {
+                final Model own = session.getModel(session.getLocalPlayer());
+                int decidedTick = -1;
+                while (session.getTick() < numTicks) {
+                    // Decide once per tick, not once per stalled attempt
+                    final int tick = session.getTick();
+                    if (tick != decidedTick) {
+                        decidedTick = tick;
+                        if (tick == desyncTick) {
+                            corrupt(session.getModel(0));
+                        }
+                        if (flingInterval > 0 && random.nextInt(flingInterval) == 0) {
+                            flingRandomBlock(own);
+                        }
+                    }
+                    if (!session.step()) {
+                        Thread.yield();
+                    }
+                }
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+
+        private void flingRandomBlock(Model model) {
+            final DroppingBlocks dropping = model.getDroppingBlocks();
+            if (dropping.size() == 0) {
+                return;
+            }
+            final int    i    = random.nextInt(dropping.size());
+            final double time = model.getTime();
+            session.queueFling(dropping.getX(i, time) + 1, dropping.getY(i, time) + 1);
+            ++flings;
+        }
+
+        private static void corrupt(Model model) {
+            final BlockField field = model.getBlockField();
+            field.getBlocks()[0][0].type = BlockType.RED;
+            field.getBlocks()[0][1].type = BlockType.BLUE;
+            field.markDirty();
+        }
+    }
+
+}